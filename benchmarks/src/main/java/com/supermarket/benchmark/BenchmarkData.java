@@ -0,0 +1,60 @@
+package com.supermarket.benchmark;
+
+import com.supermarket.model.Bill;
+import com.supermarket.model.BillItem;
+import com.supermarket.model.Product;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Deterministic sample products and bills shaped like a real catalog.
+ */
+public final class BenchmarkData {
+
+    public static final String[] CATEGORIES = {
+            "Dairy", "Bakery", "Beverages", "Produce", "Frozen", "Snacks", "Household", "Personal Care"
+    };
+    private static final String[] WORDS = {
+            "Organic", "Whole", "Fresh", "Classic", "Family", "Low Fat", "Premium", "Value",
+            "Milk", "Bread", "Juice", "Cheese", "Yogurt", "Chips", "Soap", "Rice", "Coffee", "Tea"
+    };
+
+    private BenchmarkData() {
+    }
+
+    public static String barcode(int index) {
+        return String.format("89%011d", index);
+    }
+
+    public static Product product(int index, Random random) {
+        Product product = new Product();
+        product.setName(WORDS[random.nextInt(8)] + " " + WORDS[8 + random.nextInt(WORDS.length - 8)] + " " + index);
+        product.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        product.setBarcode(barcode(index));
+        product.setPrice(Math.round((0.5 + random.nextDouble() * 50) * 100) / 100.0);
+        product.setQuantity(1_000_000_000);
+        product.setLowStockThreshold(10);
+        return product;
+    }
+
+    public static Bill bill(int lines, Random random) {
+        Bill bill = new Bill();
+        bill.setId((long) random.nextInt(1_000_000));
+        bill.setBillNumber("BILL-1792315413632-00-0001");
+        bill.setCreatedAt(LocalDateTime.now());
+        for (int i = 0; i < lines; i++) {
+            Product product = product(i, random);
+            product.setId((long) i + 1);
+            BillItem item = new BillItem();
+            item.setProductId(product.getId());
+            item.setProductName(product.getName());
+            item.setBarcode(product.getBarcode());
+            item.setPrice(product.getPrice());
+            item.setQuantity(1 + random.nextInt(5));
+            item.setSubtotal(item.getPrice() * item.getQuantity());
+            bill.addItem(item);
+        }
+        bill.calculateTotals(5.0, 2.0);
+        return bill;
+    }
+}
@@ -0,0 +1,129 @@
+package com.supermarket.benchmark;
+
+import com.supermarket.service.BillNumberGenerator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stress check for {@link BillNumberGenerator}: many threads take numbers from one
+ * generator as fast as they can, so thousands share a millisecond and most calls race on
+ * the same CAS. Every number must be unique, match
+ * {@code BILL-<millis>-<node>-<seq>} with the configured node, and increase within each
+ * thread, and the generator must issue at least min-per-second numbers per second across
+ * all threads. Node ids outside 0..99 must be refused. Exits with 1 on any failure.
+ * <p>
+ * Options ({@code --name=value}): threads (64), numbers-per-thread (100000), node-id (7)
+ * and min-per-second (100000).
+ */
+public class BillNumberUniquenessCheck {
+
+    private static final Pattern FORMAT = Pattern.compile("BILL-(\\d{13})-(\\d{2})-(\\d{4})");
+
+    private int failures;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+        int perThread = Integer.parseInt(options.getOrDefault("numbers-per-thread", "100000"));
+        int nodeId = Integer.parseInt(options.getOrDefault("node-id", "7"));
+        long minPerSecond = Long.parseLong(options.getOrDefault("min-per-second", "100000"));
+
+        BillNumberUniquenessCheck check = new BillNumberUniquenessCheck();
+        check.checkNodeIdRange();
+        check.checkConcurrentNumbers(new BillNumberGenerator(nodeId), nodeId, threads, perThread, minPerSecond);
+        System.exit(check.failures == 0 ? 0 : 1);
+    }
+
+    private void checkNodeIdRange() {
+        for (int nodeId : new int[] {-1, 100}) {
+            try {
+                new BillNumberGenerator(nodeId);
+                fail("node id " + nodeId + " was accepted");
+            } catch (IllegalArgumentException expected) {
+                // Refused at startup, as it should be
+            }
+        }
+    }
+
+    private void checkConcurrentNumbers(BillNumberGenerator generator, int nodeId, int threads, int perThread,
+                                        long minPerSecond) throws InterruptedException {
+        String[][] issued = new String[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            String[] numbers = issued[t];
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < numbers.length; i++) {
+                    numbers[i] = generator.next();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        String node = nodeId < 10 ? "0" + nodeId : String.valueOf(nodeId);
+        Set<String> seen = new HashSet<>(threads * perThread * 2);
+        int duplicates = 0;
+        int malformed = 0;
+        int outOfOrder = 0;
+        for (String[] numbers : issued) {
+            long previous = -1;
+            for (String number : numbers) {
+                Matcher matcher = number != null ? FORMAT.matcher(number) : null;
+                if (matcher == null || !matcher.matches() || !matcher.group(2).equals(node)) {
+                    if (malformed++ == 0) {
+                        fail("malformed bill number " + number);
+                    }
+                    continue;
+                }
+                if (!seen.add(number) && duplicates++ == 0) {
+                    fail("duplicate bill number " + number);
+                }
+                long position = Long.parseLong(matcher.group(1)) * 10_000 + Integer.parseInt(matcher.group(3));
+                if (position <= previous && outOfOrder++ == 0) {
+                    fail("bill number " + number + " is not after the previous one of its thread");
+                }
+                previous = position;
+            }
+        }
+
+        long total = (long) threads * perThread;
+        double perSecond = total * 1_000_000_000.0 / Math.max(elapsedNanos, 1);
+        System.out.printf("%d bill numbers from %d threads in %d ms (%.0f per second): "
+                        + "%d duplicate(s), %d malformed, %d out of order%n",
+                total, threads, elapsedNanos / 1_000_000, perSecond, duplicates, malformed, outOfOrder);
+        if (perSecond < minPerSecond) {
+            fail(String.format("%.0f bill numbers per second, below the required %d", perSecond, minPerSecond));
+        }
+    }
+
+    private void fail(String message) {
+        failures++;
+        System.out.println("FAILED: " + message);
+    }
+}
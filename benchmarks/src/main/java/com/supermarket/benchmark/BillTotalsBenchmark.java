@@ -0,0 +1,44 @@
+package com.supermarket.benchmark;
+
+import com.supermarket.model.Bill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Bill#calculateTotals} over bills of different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillTotalsBenchmark {
+
+    @Param({"3", "20", "100"})
+    public int lines;
+
+    private Bill bill;
+
+    @Setup
+    public void setUp() {
+        bill = BenchmarkData.bill(lines, new Random(42));
+    }
+
+    @Benchmark
+    public Double calculateTotals() {
+        bill.calculateTotals(5.0, 2.0);
+        return bill.getTotal();
+    }
+}
@@ -0,0 +1,278 @@
+package com.supermarket.benchmark;
+
+import com.supermarket.SupermarketApplication;
+import com.supermarket.service.StockMovementJournal;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Load harness for checkout: boots the application on an in-memory H2 database, seeds a
+ * catalog over the API and then has {@code tills} threads post bills as fast as they can
+ * for a fixed time. A configurable share of bill lines goes to a small set of hot SKUs,
+ * so stock runs out and the same rows are updated concurrently.
+ * <p>
+ * Afterwards it reports throughput and p50 / p99 / p99.9 latency of successful bills,
+ * then checks every product: its quantity must equal its initial stock minus its
+ * {@code SALE} stock movements, which must in turn equal what was billed. Any
+ * difference is reported as an oversell or lost update and the process exits with 1.
+ * <p>
+ * Options ({@code --name=value}): tills (32), products (2000), stock (200), lines (4),
+ * hot-fraction (0.01), hot-share (0.5), warmup-seconds (5), duration-seconds (30),
+ * virtual-threads (false), pool-size (the application's default) and journal-async (false).
+ * Running the same load with and without virtual threads, or with the stock movement
+ * journal in sync and async mode, compares the two. In async mode the check waits for the
+ * journal to be flushed first.
+ */
+public class CheckoutLoadSimulator {
+
+    private final int tills;
+    private final int products;
+    private final int initialStock;
+    private final int linesPerBill;
+    private final int hotProducts;
+    private final double hotShare;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final boolean virtualThreads;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private String baseUrl;
+
+    CheckoutLoadSimulator(Map<String, String> options) {
+        tills = Integer.parseInt(options.getOrDefault("tills", "32"));
+        products = Integer.parseInt(options.getOrDefault("products", "2000"));
+        initialStock = Integer.parseInt(options.getOrDefault("stock", "200"));
+        linesPerBill = Integer.parseInt(options.getOrDefault("lines", "4"));
+        hotProducts = Math.max(1, (int) (products * Double.parseDouble(options.getOrDefault("hot-fraction", "0.01"))));
+        hotShare = Double.parseDouble(options.getOrDefault("hot-share", "0.5"));
+        warmupNanos = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-seconds", "5"))).toNanos();
+        durationNanos = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-seconds", "30"))).toNanos();
+        virtualThreads = Boolean.parseBoolean(options.getOrDefault("virtual-threads", "false"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        // Command-line arguments so they win over application.properties
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0", "--server.address=127.0.0.1", "--management.server.port=0",
+                "--spring.threads.virtual.enabled=" + options.getOrDefault("virtual-threads", "false"),
+                "--stock.journal.async=" + options.getOrDefault("journal-async", "false")));
+        if (options.containsKey("pool-size")) {
+            appArgs.add("--spring.datasource.hikari.maximum-pool-size=" + options.get("pool-size"));
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SupermarketApplication.class)
+                .properties(
+                        "DB_URL=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                        "DB_USER=sa",
+                        "DB_PASS=",
+                        "logging.level.root=WARN")
+                .run(appArgs.toArray(String[]::new));
+        boolean consistent;
+        try {
+            CheckoutLoadSimulator simulator = new CheckoutLoadSimulator(options);
+            simulator.baseUrl = "http://127.0.0.1:"
+                    + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api";
+            simulator.seedCatalog();
+            simulator.run();
+            if (!context.getBean(StockMovementJournal.class).awaitFlushed(Duration.ofSeconds(60))) {
+                System.out.println("Stock movement journal was not flushed within 60s");
+            }
+            consistent = simulator.verify(context.getBean(JdbcTemplate.class));
+        } finally {
+            context.close();
+        }
+        System.exit(consistent ? 0 : 1);
+    }
+
+    private void seedCatalog() throws Exception {
+        System.out.printf("Seeding %d products with %d units each (%d hot)%n", products, initialStock, hotProducts);
+        Random random = new Random(42);
+        for (int i = 0; i < products; i++) {
+            String body = String.format(Locale.ROOT,
+                    "{\"name\":\"Product %d\",\"category\":\"%s\",\"barcode\":\"%s\",\"price\":%.2f,"
+                            + "\"quantity\":%d,\"lowStockThreshold\":10}",
+                    i, BenchmarkData.CATEGORIES[i % BenchmarkData.CATEGORIES.length], BenchmarkData.barcode(i),
+                    0.5 + random.nextDouble() * 50, initialStock);
+            HttpResponse<String> response = post("/products", body);
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Seeding failed: " + response.statusCode() + " " + response.body());
+            }
+        }
+    }
+
+    private void run() throws InterruptedException {
+        System.out.printf("Running %d tills for %ds after %ds of warm-up (%s threads)%n",
+                tills, Duration.ofNanos(durationNanos).toSeconds(), Duration.ofNanos(warmupNanos).toSeconds(),
+                virtualThreads ? "virtual" : "platform");
+        Till[] workers = new Till[tills];
+        CountDownLatch start = new CountDownLatch(1);
+        long measureFrom = System.nanoTime() + warmupNanos;
+        long measureUntil = measureFrom + durationNanos;
+        for (int i = 0; i < tills; i++) {
+            workers[i] = new Till(i, start, measureFrom, measureUntil);
+            workers[i].start();
+        }
+        start.countDown();
+        for (Till till : workers) {
+            till.join();
+        }
+
+        long[] latencies = new long[0];
+        long sold = 0;
+        long rejected = 0;
+        long failed = 0;
+        for (Till till : workers) {
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + till.count);
+            System.arraycopy(till.latencies, 0, latencies, offset, till.count);
+            sold += till.count;
+            rejected += till.rejected;
+            failed += till.failed;
+        }
+        Arrays.sort(latencies);
+        double seconds = durationNanos / 1e9;
+        System.out.printf("Bills: %d ok, %d rejected for stock, %d failed (measured window)%n", sold, rejected, failed);
+        System.out.printf("Throughput: %.1f bills/s%n", sold / seconds);
+        System.out.printf("Latency ms: p50 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                percentile(latencies, 1.0));
+    }
+
+    private boolean verify(JdbcTemplate jdbc) {
+        Map<Long, Long> saleMovements = sums(jdbc,
+                "SELECT product_id, SUM(quantity) FROM stock_movements WHERE movement_type = 'SALE' GROUP BY product_id");
+        Map<Long, Long> billed = sums(jdbc, "SELECT product_id, SUM(quantity) FROM bill_items GROUP BY product_id");
+        List<String> problems = new ArrayList<>();
+        jdbc.query("SELECT id, barcode, quantity FROM products", row -> {
+            long id = row.getLong("id");
+            int quantity = row.getInt("quantity");
+            long moved = saleMovements.getOrDefault(id, 0L);
+            long sold = billed.getOrDefault(id, 0L);
+            if (quantity < 0 || sold > initialStock) {
+                problems.add(String.format("OVERSELL %s: quantity %d, billed %d of %d",
+                        row.getString("barcode"), quantity, sold, initialStock));
+            } else if (initialStock - quantity != moved || moved != sold) {
+                problems.add(String.format("LOST UPDATE %s: quantity %d, expected %d from SALE movements, billed %d",
+                        row.getString("barcode"), quantity, initialStock - moved, sold));
+            }
+        });
+
+        if (problems.isEmpty()) {
+            System.out.printf("Stock check: all %d products consistent%n", products);
+            return true;
+        }
+        System.out.printf("Stock check: %d inconsistent product(s)%n", problems.size());
+        problems.stream().limit(50).forEach(System.out::println);
+        return false;
+    }
+
+    private static Map<Long, Long> sums(JdbcTemplate jdbc, String sql) {
+        Map<Long, Long> sums = new HashMap<>();
+        jdbc.query(sql, row -> {
+            sums.put(row.getLong(1), row.getLong(2));
+        });
+        return sums;
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private HttpResponse<String> post(String path, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (Exception ex) {
+            throw new IllegalStateException("POST " + path + " failed", ex);
+        }
+    }
+
+    private String billRequest(Random random) {
+        StringBuilder body = new StringBuilder("{\"taxRate\":5,\"discount\":0,\"items\":[");
+        for (int i = 0; i < linesPerBill; i++) {
+            int product = random.nextDouble() < hotShare
+                    ? random.nextInt(hotProducts)
+                    : hotProducts + random.nextInt(Math.max(1, products - hotProducts));
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"barcode\":\"").append(BenchmarkData.barcode(Math.min(product, products - 1)))
+                    .append("\",\"quantity\":").append(1 + random.nextInt(3)).append('}');
+        }
+        return body.append("]}").toString();
+    }
+
+    private final class Till extends Thread {
+        private final CountDownLatch start;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final Random random;
+        private long[] latencies = new long[1 << 14];
+        private int count;
+        private long rejected;
+        private long failed;
+
+        Till(int number, CountDownLatch start, long measureFrom, long measureUntil) {
+            super("till-" + number);
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+            this.random = new Random(number);
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            long now;
+            while ((now = System.nanoTime()) < measureUntil) {
+                HttpResponse<String> response = post("/bills", billRequest(random));
+                long finished = System.nanoTime();
+                if (now < measureFrom) {
+                    continue;
+                }
+                if (response.statusCode() == 201 || response.statusCode() == 200) {
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = finished - now;
+                } else if (response.statusCode() == 400) {
+                    rejected++;
+                } else {
+                    failed++;
+                }
+            }
+        }
+    }
+}
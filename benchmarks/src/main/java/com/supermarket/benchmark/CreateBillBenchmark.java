@@ -0,0 +1,125 @@
+package com.supermarket.benchmark;
+
+import com.supermarket.SupermarketApplication;
+import com.supermarket.dto.BillRequest;
+import com.supermarket.dto.BillResponse;
+import com.supermarket.model.Product;
+import com.supermarket.repository.ProductRepository;
+import com.supermarket.service.BillingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BillingService#createBill} end-to-end: cache lookups, guarded stock updates,
+ * bill and movement inserts and the after-commit listeners, against an embedded H2
+ * database seeded with {@code catalogSize} products. Stock is seeded high enough that
+ * checkouts never run out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CreateBillBenchmark {
+
+    private static final int SEED_CHUNK = 1000;
+    private static final int REQUEST_POOL = 4096;
+
+    @Param({"10000"})
+    public int catalogSize;
+
+    @Param({"5"})
+    public int linesPerBill;
+
+    private ConfigurableApplicationContext context;
+    private BillingService billingService;
+    private BillRequest[] requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SupermarketApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "DB_URL=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "DB_USER=sa",
+                        "DB_PASS=",
+                        "logging.level.root=WARN")
+                .run();
+        billingService = context.getBean(BillingService.class);
+        seedCatalog(context.getBean(ProductRepository.class),
+                new TransactionTemplate(context.getBean(PlatformTransactionManager.class)));
+
+        Random random = new Random(7);
+        requests = new BillRequest[REQUEST_POOL];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = request(random);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BillResponse createBill(Cursor cursor) {
+        return billingService.createBill(requests[cursor.next()]);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        int next() {
+            position = (position + 1) & (REQUEST_POOL - 1);
+            return position;
+        }
+    }
+
+    private void seedCatalog(ProductRepository productRepository, TransactionTemplate transactionTemplate) {
+        Random random = new Random(42);
+        for (int start = 0; start < catalogSize; start += SEED_CHUNK) {
+            List<Product> chunk = new ArrayList<>(SEED_CHUNK);
+            for (int i = start; i < Math.min(start + SEED_CHUNK, catalogSize); i++) {
+                chunk.add(BenchmarkData.product(i, random));
+            }
+            transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(chunk));
+        }
+    }
+
+    private BillRequest request(Random random) {
+        List<BillRequest.BillItemDTO> items = new ArrayList<>(linesPerBill);
+        for (int i = 0; i < linesPerBill; i++) {
+            BillRequest.BillItemDTO item = new BillRequest.BillItemDTO();
+            item.setBarcode(BenchmarkData.barcode(random.nextInt(catalogSize)));
+            item.setQuantity(1 + random.nextInt(3));
+            items.add(item);
+        }
+        BillRequest request = new BillRequest();
+        request.setItems(items);
+        request.setTaxRate(5.0);
+        request.setDiscount(0.0);
+        return request;
+    }
+}
@@ -0,0 +1,119 @@
+package com.supermarket.benchmark;
+
+import com.supermarket.SupermarketApplication;
+import com.supermarket.dto.BillRequest;
+import com.supermarket.metrics.SqlStatementCount;
+import com.supermarket.model.Product;
+import com.supermarket.repository.ProductRepository;
+import com.supermarket.service.BillingService;
+import com.supermarket.service.ReportService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Pins the number of SQL statements behind the hot paths, so that an N+1 query or an
+ * extra round trip shows up as a failure instead of as a slow endpoint in production.
+ * Boots the application on an in-memory H2 database, warms the product cache and then
+ * counts each operation with {@link SqlStatementCount}. Exits with 1 if any count differs
+ * from its pinned value; update the value here when a change is meant to alter it.
+ */
+public class StatementCountCheck {
+
+    private static final int PRODUCTS = 200;
+    private static final int LINES = 5;
+    // Ids are allocated 50 at a time, so every 50th bill, bill item or stock movement costs
+    // a sequence fetch. After this many bills the checked one fits in the current pools.
+    private static final int WARM_UP_BILLS = 195;
+
+    // Batch of guarded stock updates, stock read-back, bill insert, item batch, movement
+    // batch; the same for any number of lines
+    private static final long CREATE_BILL = 5;
+    // Page of bill ids, then the bills with their items
+    private static final long GET_BILLS = 2;
+    // Rollup for past days, live totals for today
+    private static final long GET_SALES_REPORT = 2;
+
+    private int failures;
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SupermarketApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "DB_URL=jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1",
+                        "DB_USER=sa",
+                        "DB_PASS=",
+                        "logging.level.root=WARN")
+                .run();
+        StatementCountCheck check = new StatementCountCheck();
+        try {
+            check.run(context);
+        } finally {
+            context.close();
+        }
+        System.exit(check.failures == 0 ? 0 : 1);
+    }
+
+    private void run(ConfigurableApplicationContext context) {
+        BillingService billingService = context.getBean(BillingService.class);
+        ReportService reportService = context.getBean(ReportService.class);
+        seedCatalog(context.getBean(ProductRepository.class),
+                new TransactionTemplate(context.getBean(PlatformTransactionManager.class)));
+
+        // Bills to list; they also warm the product cache
+        Random random = new Random(3);
+        for (int i = 0; i < WARM_UP_BILLS; i++) {
+            billingService.createBill(request(random));
+        }
+
+        check("createBill", CREATE_BILL, () -> billingService.createBill(request(random)));
+        check("getBills", GET_BILLS, () -> billingService.getBills(null, 50));
+        check("getSalesReport", GET_SALES_REPORT,
+                () -> reportService.getSalesReport(LocalDate.now().minusDays(30), LocalDate.now()));
+    }
+
+    private void check(String operation, long expected, Supplier<?> action) {
+        try (SqlStatementCount count = SqlStatementCount.start()) {
+            action.get();
+            if (count.getStatements() == expected) {
+                System.out.printf("%-16s %3d statements, %d entities loaded%n",
+                        operation, count.getStatements(), count.getEntityLoads());
+            } else {
+                failures++;
+                System.out.printf("%-16s %3d statements, expected %d%n", operation, count.getStatements(), expected);
+            }
+        }
+    }
+
+    private static void seedCatalog(ProductRepository productRepository, TransactionTemplate transactionTemplate) {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(BenchmarkData.product(i, random));
+        }
+        transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(products));
+    }
+
+    private static BillRequest request(Random random) {
+        List<BillRequest.BillItemDTO> items = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            BillRequest.BillItemDTO item = new BillRequest.BillItemDTO();
+            // Distinct barcodes, so every line is its own stock update
+            item.setBarcode(BenchmarkData.barcode(random.nextInt(PRODUCTS / LINES) * LINES + i));
+            item.setQuantity(1 + random.nextInt(3));
+            items.add(item);
+        }
+        BillRequest request = new BillRequest();
+        request.setItems(items);
+        request.setTaxRate(5.0);
+        request.setDiscount(0.0);
+        return request;
+    }
+}
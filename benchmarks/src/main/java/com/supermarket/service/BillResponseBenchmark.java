@@ -0,0 +1,85 @@
+package com.supermarket.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermarket.benchmark.BenchmarkData;
+import com.supermarket.dto.BillResponse;
+import com.supermarket.model.Bill;
+import com.supermarket.model.Product;
+import com.supermarket.model.StockLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serializing checkout responses: {@code BillingService.convertToResponse}
+ * and Jackson serialization of {@link BillResponse} and {@link Product}, using an
+ * {@link ObjectMapper} configured the way Spring Boot configures the application's.
+ * <p>
+ * Lives in the service package because {@code convertToResponse} is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillResponseBenchmark {
+
+    @Param({"3", "20", "100"})
+    public int lines;
+
+    private BillingService billingService;
+    private ObjectMapper objectMapper;
+    private Bill bill;
+    private BillResponse response;
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        // convertToResponse only reads the bill, so no collaborators are needed
+        billingService = new BillingService(null, null, null, null, null, null, null, null, null, null);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Random random = new Random(42);
+        bill = BenchmarkData.bill(lines, random);
+        response = billingService.convertToResponse(bill);
+        product = BenchmarkData.product(1, random);
+        product.setId(1L);
+        product.setStatus(Product.statusFor(product.getQuantity()));
+        product.setStockLevel(StockLevel.of(product.getQuantity(), product.getLowStockThreshold()));
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public BillResponse convertToResponse() {
+        return billingService.convertToResponse(bill);
+    }
+
+    @Benchmark
+    public byte[] serializeBillResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] convertAndSerializeBill() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(billingService.convertToResponse(bill));
+    }
+
+    @Benchmark
+    public byte[] serializeProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(product);
+    }
+}
@@ -0,0 +1,76 @@
+package com.supermarket.cache;
+
+import com.supermarket.repository.ProductRepository;
+import com.supermarket.search.CategoryFacetIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * ETags for the catalog endpoints, taken from the database so every instance hands out
+ * the same tag for the same catalog.
+ * <p>
+ * The catalog tag is the latest product {@code updatedAt} and tombstone {@code deletedAt};
+ * the facets tag uses {@code facetsUpdatedAt} instead, which only moves when a category or
+ * stock level changes, so sales that leave both alone keep category lists cacheable. Both
+ * times are stamped by the database when a transaction writes, not when it commits, so a
+ * transaction still committing can carry an earlier time than one already visible. While
+ * the latest time is within {@code product.changes.settle-ms}, which every transaction
+ * ends within, no tag is given and the response is sent in full. Responses built from the
+ * {@link CategoryFacetIndex} are only tagged once the index has been rebuilt that long
+ * after the latest change, since until then it may lack other instances' changes. Read
+ * the tag before loading the response, so a change that commits meanwhile is at worst
+ * sent again.
+ */
+@Component
+public class CatalogVersion {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ProductRepository productRepository;
+    private final CategoryFacetIndex facetIndex;
+    private final long settleMillis;
+
+    public CatalogVersion(ProductRepository productRepository, CategoryFacetIndex facetIndex,
+                          @Value("${product.changes.settle-ms:15000}") long settleMillis) {
+        this.productRepository = productRepository;
+        this.facetIndex = facetIndex;
+        this.settleMillis = settleMillis;
+    }
+
+    /** Tag for responses with quantities, or null while a change may still be committing. */
+    public String getCatalogETag() {
+        ProductRepository.CatalogState state = productRepository.findCatalogState();
+        return tag("c", state.getUpdatedAt(), state.getDeletedAt(), state.getDatabaseTime());
+    }
+
+    /** Like {@link #getCatalogETag()}, for responses that pick products through the facet index. */
+    public String getCategoryETag() {
+        ProductRepository.CatalogState state = productRepository.findCatalogState();
+        return tag("c", state.getUpdatedAt(), state.getDeletedAt(), indexedAt(state));
+    }
+
+    /** Tag for category lists and facets, or null while a change may still be committing. */
+    public String getFacetsETag() {
+        ProductRepository.CatalogState state = productRepository.findCatalogState();
+        return tag("f", state.getFacetsUpdatedAt(), state.getDeletedAt(), indexedAt(state));
+    }
+
+    private LocalDateTime indexedAt(ProductRepository.CatalogState state) {
+        LocalDateTime loadedAt = facetIndex.getLoadedAt();
+        return facetIndex.isReady() && loadedAt.isBefore(state.getDatabaseTime()) ? loadedAt : state.getDatabaseTime();
+    }
+
+    private String tag(String kind, LocalDateTime updatedAt, LocalDateTime deletedAt, LocalDateTime upTo) {
+        LocalDateTime settled = upTo.minus(settleMillis, ChronoUnit.MILLIS);
+        if ((updatedAt != null && updatedAt.isAfter(settled)) || (deletedAt != null && deletedAt.isAfter(settled))) {
+            return null;
+        }
+        return "\"" + kind + "-" + micros(updatedAt) + "-" + micros(deletedAt) + "\"";
+    }
+
+    private static String micros(LocalDateTime time) {
+        return time == null ? "0" : Long.toString(ChronoUnit.MICROS.between(EPOCH, time), 36);
+    }
+}
@@ -0,0 +1,194 @@
+package com.supermarket.cache;
+
+import com.supermarket.dto.CacheStats;
+import com.supermarket.event.ProductChangedEvent;
+import com.supermarket.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU cache of product snapshots keyed by barcode.
+ * <p>
+ * Entries are detached copies, so callers must treat them as read-only. Product changes
+ * are applied once their transaction commits; a concurrent miss for the same barcode that
+ * loaded its row before such a change is discarded instead of overwriting the newer entry,
+ * while misses for other barcodes are kept. Changes only reach the instance that made
+ * them, so entries expire after {@code product.cache.ttl-seconds}, which bounds how long
+ * a change made through another instance can go unseen. Sales only patch the quantity of
+ * an entry and leave its age alone, since the event is built from the cached snapshot;
+ * otherwise a barcode that keeps selling would never expire.
+ */
+@Component
+public class ProductCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    // One token per barcode being loaded; a change removes it, so the load is not cached
+    private final Map<String, Object> loading = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public ProductCache(@Value("${product.cache.max-size:10000}") int maxSize,
+                        @Value("${product.cache.ttl-seconds:60}") long ttlSeconds) {
+        this(maxSize, ttlSeconds, System::nanoTime);
+    }
+
+    ProductCache(int maxSize, long ttlSeconds, LongSupplier nanoClock) {
+        this.maxSize = maxSize;
+        this.nanoClock = nanoClock;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ProductCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<Product> getOrLoad(String barcode, Function<String, Optional<Product>> loader) {
+        Object token = new Object();
+        synchronized (this) {
+            Product cached = lookup(barcode);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            loading.putIfAbsent(barcode, token);
+        }
+        misses.increment();
+
+        Optional<Product> loaded = Optional.empty();
+        try {
+            loaded = loader.apply(barcode).map(Product::copy);
+        } finally {
+            synchronized (this) {
+                if (loading.remove(barcode, token) && loaded.isPresent()) {
+                    entries.putIfAbsent(barcode, new Entry(loaded.get(), nanoClock.getAsLong()));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public Map<String, Product> getAll(Collection<String> barcodes,
+                                       Function<Collection<String>, List<Product>> loader) {
+        Map<String, Product> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        Object token = new Object();
+        synchronized (this) {
+            for (String barcode : barcodes) {
+                Product cached = lookup(barcode);
+                if (cached != null) {
+                    found.put(barcode, cached);
+                } else {
+                    missing.add(barcode);
+                    loading.putIfAbsent(barcode, token);
+                }
+            }
+        }
+        hits.add(found.size());
+        misses.add(missing.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        List<Product> loaded = List.of();
+        try {
+            loaded = loader.apply(missing).stream().map(Product::copy).toList();
+        } finally {
+            synchronized (this) {
+                long now = nanoClock.getAsLong();
+                for (Product product : loaded) {
+                    found.put(product.getBarcode(), product);
+                    if (loading.remove(product.getBarcode(), token)) {
+                        entries.putIfAbsent(product.getBarcode(), new Entry(product, now));
+                    }
+                }
+                for (String barcode : missing) {
+                    loading.remove(barcode, token);
+                }
+            }
+        }
+        return found;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        Product previous = event.getPrevious();
+        Product current = event.getCurrent();
+        if (previous != null && (current == null || !previous.getBarcode().equals(current.getBarcode()))) {
+            loading.remove(previous.getBarcode());
+            entries.remove(previous.getBarcode());
+        }
+        if (current != null) {
+            loading.remove(current.getBarcode());
+            Entry entry = entries.get(current.getBarcode());
+            if (previous == null || !sameListing(previous, current)) {
+                entries.put(current.getBarcode(), new Entry(current.copy(), nanoClock.getAsLong()));
+            } else if (entry != null) {
+                // Stock only: keep the entry's age, and reload it from the database once it expires
+                Product patched = entry.product().copyWithQuantity(current.getQuantity());
+                patched.setUpdatedAt(current.getUpdatedAt());
+                entries.put(current.getBarcode(), new Entry(patched, entry.cachedAt()));
+            }
+        }
+    }
+
+    public synchronized void evict(String barcode) {
+        loading.remove(barcode);
+        entries.remove(barcode);
+    }
+
+    public synchronized CacheStats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return new CacheStats(entries.size(), maxSize, hitCount, missCount, evictions.sum(),
+                lookups == 0 ? 0.0 : (double) hitCount / lookups);
+    }
+
+    private static boolean sameListing(Product previous, Product current) {
+        return Objects.equals(previous.getName(), current.getName())
+                && Objects.equals(previous.getCategory(), current.getCategory())
+                && Objects.equals(previous.getBarcode(), current.getBarcode())
+                && Objects.equals(previous.getPrice(), current.getPrice())
+                && Objects.equals(previous.getLowStockThreshold(), current.getLowStockThreshold());
+    }
+
+    private Product lookup(String barcode) {
+        Entry entry = entries.get(barcode);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.cachedAt() > ttlNanos) {
+            entries.remove(barcode);
+            return null;
+        }
+        return entry.product();
+    }
+
+    private record Entry(Product product, long cachedAt) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.supermarket.config;
+
+import com.supermarket.metrics.SqlStatementListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.util.List;
+
+@Configuration
+public class HibernateConfig {
+
+    // Statement and entity-load counting for SqlStatementCount
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounting() {
+        return properties -> {
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SqlStatementListener.class.getName());
+            properties.put("hibernate.integrator_provider",
+                    (IntegratorProvider) () -> List.of(new SqlStatementListener.EntityLoads()));
+        };
+    }
+}
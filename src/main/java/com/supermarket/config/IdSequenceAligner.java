@@ -0,0 +1,67 @@
+package com.supermarket.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+
+/**
+ * Moves the pooled id generators past ids that were handed out by the old
+ * auto-increment columns. On databases with native sequences (H2, PostgreSQL) a
+ * sequence that is behind is restarted past the table's largest id; databases without
+ * them (MySQL) keep each generator in a one-row {@code next_val} table, which is moved
+ * forward instead. Startup fails if a generator cannot be aligned, since it would hand
+ * out ids that are already taken.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceAligner {
+
+    // Must match allocationSize on the entities' @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "products_seq", "products",
+            "bills_seq", "bills",
+            "bill_items_seq", "bill_items",
+            "stock_movements_seq", "stock_movements");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void alignSequences() {
+        SequenceSupport sequenceSupport = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport();
+        SEQUENCES.forEach((sequence, table) -> {
+            // A pooled generator hands out the block below the value it reads, so the
+            // first value must clear the largest id by a whole block
+            String start = "(SELECT COALESCE(MAX(id), 0) + " + (ALLOCATION_SIZE + 1) + " FROM " + table + ")";
+            try {
+                if (sequenceSupport.supportsSequences()) {
+                    Long next = jdbcTemplate.queryForObject(sequenceSupport.getSequenceNextValString(sequence), Long.class);
+                    Long first = jdbcTemplate.queryForObject("SELECT " + start, Long.class);
+                    // An empty table has nothing to collide with
+                    if (next < first && first > ALLOCATION_SIZE + 1) {
+                        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + first);
+                        log.info("Restarted {} at {}, past the ids already in {}", sequence, first, table);
+                    }
+                } else {
+                    jdbcTemplate.update("UPDATE " + sequence + " SET next_val = GREATEST(next_val, " + start + ")");
+                }
+            } catch (DataAccessException ex) {
+                throw new IllegalStateException("Could not move id generator " + sequence + " past the ids in "
+                        + table + "; new rows would reuse existing ids", ex);
+            }
+        });
+    }
+}
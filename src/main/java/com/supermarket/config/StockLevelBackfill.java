@@ -0,0 +1,41 @@
+package com.supermarket.config;
+
+import com.supermarket.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills in {@code products.stock_level} for rows created before the column was added,
+ * so the stock-level queries and counts never miss them. Only touches rows where it is
+ * still null, so after the first run this is a single indexed no-op update.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class StockLevelBackfill {
+
+    private static final int BACKFILL_TIMEOUT_SECONDS = 600;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public StockLevelBackfill(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // One update over the whole table; it does not touch updatedAt, so the change feed
+        // does not depend on it finishing within the default timeout
+        this.transactionTemplate.setTimeout(BACKFILL_TIMEOUT_SECONDS);
+    }
+
+    @PostConstruct
+    public void backfill() {
+        Integer updated = transactionTemplate.execute(status -> productRepository.backfillStockLevels());
+        if (updated != null && updated > 0) {
+            log.info("Set stock level on {} existing product(s)", updated);
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.supermarket.controller;
 
+import com.supermarket.config.WebConfig;
+import com.supermarket.dto.BillBatchRequest;
+import com.supermarket.dto.BillBatchResponse;
+import com.supermarket.dto.BillPage;
 import com.supermarket.dto.BillRequest;
 import com.supermarket.dto.BillResponse;
+import com.supermarket.dto.ExportFormat;
 import com.supermarket.service.BillingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -25,9 +32,21 @@ public class BillingController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<BillBatchResponse> createBills(@Valid @RequestBody BillBatchRequest request) {
+        return ResponseEntity.ok(billingService.createBills(request.getBills()));
+    }
+    
     @GetMapping
-    public ResponseEntity<List<BillResponse>> getAllBills() {
-        return ResponseEntity.ok(billingService.getAllBills());
+    public ResponseEntity<List<BillResponse>> getAllBills(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        BillPage page = billingService.getBills(cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(WebConfig.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getBills());
     }
     
     @GetMapping("/{id}")
@@ -46,4 +65,18 @@ public class BillingController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
         return ResponseEntity.ok(billingService.getBillsByDateRange(start, end));
     }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBills(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        StreamingResponseBody body = out -> billingService.exportBills(start, end, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, 
+                        "attachment; filename=\"bills." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
 }
@@ -1,16 +1,41 @@
 package com.supermarket.controller;
 
+import com.supermarket.cache.CatalogVersion;
+import com.supermarket.config.WebConfig;
+import com.supermarket.dto.CacheStats;
+import com.supermarket.dto.ExportFormat;
+import com.supermarket.dto.CategoryFacet;
+import com.supermarket.dto.ProductChanges;
 import com.supermarket.dto.ProductDTO;
+import com.supermarket.dto.ProductView;
+import com.supermarket.dto.StockAdjustmentRequest;
+import com.supermarket.dto.StockMovementPage;
 import com.supermarket.model.Product;
+import com.supermarket.model.StockLevel;
 import com.supermarket.model.StockMovement;
+import com.supermarket.model.StockMovementDaily;
+import com.supermarket.service.CatalogImportService;
+import com.supermarket.service.CatalogSyncService;
 import com.supermarket.service.ProductService;
+import com.supermarket.service.StockMovementArchiveService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/products")
@@ -18,45 +43,80 @@ import java.util.Map;
 public class ProductController {
 
     private final ProductService productService;
+    private final CatalogVersion catalogVersion;
+    private final CatalogImportService catalogImportService;
+    private final CatalogSyncService catalogSyncService;
+    private final StockMovementArchiveService stockMovementArchiveService;
 
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<List<ProductView>> getAllProducts(WebRequest request) {
+        return ifCatalogChanged(request, catalogVersion.getCatalogETag(), productService::getAllProducts);
+    }
+
+    // Products created, updated or deleted after the since position, for tills that keep a local catalog
+    @GetMapping("/changes")
+    public ResponseEntity<ProductChanges> getChanges(@RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(catalogSyncService.getChanges(since, size));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<ProductView> getProductById(@PathVariable Long id) {
         return ResponseEntity.ok(productService.getProductById(id));
     }
 
     @GetMapping("/barcode/{barcode}")
-    public ResponseEntity<Product> getProductByBarcode(@PathVariable String barcode) {
+    public ResponseEntity<ProductView> getProductByBarcode(@PathVariable String barcode) {
         return ResponseEntity.ok(productService.getProductByBarcode(barcode));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword) {
-        return ResponseEntity.ok(productService.searchProducts(keyword));
+    public ResponseEntity<List<ProductView>> searchProducts(@RequestParam String keyword,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.searchProducts(keyword, limit));
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
-        return ResponseEntity.ok(productService.getProductsByCategory(category));
+    public ResponseEntity<List<ProductView>> getProductsByCategory(@PathVariable String category,
+            @RequestParam(required = false) StockLevel stockLevel, WebRequest request) {
+        return ifCatalogChanged(request, catalogVersion.getCategoryETag(),
+                () -> productService.getProductsByCategory(category, stockLevel));
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<List<String>> getAllCategories() {
-        return ResponseEntity.ok(productService.getAllCategories());
+    public ResponseEntity<List<String>> getAllCategories(@RequestParam(required = false) StockLevel stockLevel,
+            WebRequest request) {
+        return ifCatalogChanged(request, catalogVersion.getFacetsETag(),
+                () -> productService.getAllCategories(stockLevel));
+    }
+
+    @GetMapping("/categories/facets")
+    public ResponseEntity<List<CategoryFacet>> getCategoryFacets(
+            @RequestParam(required = false) StockLevel stockLevel, WebRequest request) {
+        return ifCatalogChanged(request, catalogVersion.getFacetsETag(),
+                () -> productService.getCategoryFacets(stockLevel));
     }
 
     @GetMapping("/low-stock")
-    public ResponseEntity<List<Product>> getLowStockProducts() {
-        return ResponseEntity.ok(productService.getLowStockProducts());
+    public ResponseEntity<List<ProductView>> getLowStockProducts(@RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return toPageResponse(productService.getProductsByStockLevel(StockLevel.LOW, page, size));
+    }
+
+    @GetMapping("/low-stock/count")
+    public ResponseEntity<Long> countLowStockProducts() {
+        return ResponseEntity.ok(productService.countProductsByStockLevel(StockLevel.LOW));
     }
 
     @GetMapping("/out-of-stock")
-    public ResponseEntity<List<Product>> getOutOfStockProducts() {
-        return ResponseEntity.ok(productService.getOutOfStockProducts());
+    public ResponseEntity<List<ProductView>> getOutOfStockProducts(@RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        return toPageResponse(productService.getProductsByStockLevel(StockLevel.OUT, page, size));
+    }
+
+    @GetMapping("/out-of-stock/count")
+    public ResponseEntity<Long> countOutOfStockProducts() {
+        return ResponseEntity.ok(productService.countProductsByStockLevel(StockLevel.OUT));
     }
 
     @PostMapping
@@ -65,6 +125,19 @@ public class ProductController {
         return new ResponseEntity<>(product, HttpStatus.CREATED);
     }
 
+    // Streams NDJSON: a progress line per committed chunk, an error line per rejected row, then a summary
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> importProducts(@RequestParam("file") MultipartFile file) {
+        StreamingResponseBody body = out -> {
+            try (InputStream in = file.getInputStream()) {
+                catalogImportService.importCsv(in, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ExportFormat.NDJSON.getMediaType())
+                .body(body);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id,
             @Valid @RequestBody ProductDTO productDTO) {
@@ -85,13 +158,61 @@ public class ProductController {
         return ResponseEntity.ok(productService.adjustStock(id, adjustment, notes));
     }
 
+    @PostMapping("/adjust-stock")
+    public ResponseEntity<List<Product>> adjustStock(@Valid @RequestBody StockAdjustmentRequest request) {
+        return ResponseEntity.ok(productService.adjustStock(request.getAdjustments()));
+    }
+
     @GetMapping("/{id}/stock-movements")
-    public ResponseEntity<List<StockMovement>> getStockMovementHistory(@PathVariable Long id) {
-        return ResponseEntity.ok(productService.getStockMovementHistory(id));
+    public ResponseEntity<List<StockMovement>> getStockMovementHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        StockMovementPage page = productService.getStockMovementHistory(id, from, to, cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(WebConfig.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getMovements());
+    }
+
+    @GetMapping("/{id}/stock-movements/daily")
+    public ResponseEntity<List<StockMovementDaily>> getDailyStockMovements(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(stockMovementArchiveService.getDailyTotals(id, from, to));
     }
 
     @GetMapping("/stock-movements/recent")
     public ResponseEntity<List<StockMovement>> getRecentStockMovements() {
         return ResponseEntity.ok(productService.getRecentStockMovements());
     }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+
+    // Answers 304 from the catalog version alone, before the response is loaded or serialized
+    private <T> ResponseEntity<T> ifCatalogChanged(WebRequest request, String etag, Supplier<T> body) {
+        if (etag == null) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(body.get());
+        }
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(body.get());
+    }
+
+    private static ResponseEntity<List<ProductView>> toPageResponse(Page<ProductView> page) {
+        return ResponseEntity.ok()
+                .header(WebConfig.TOTAL_COUNT_HEADER, String.valueOf(page.getTotalElements()))
+                .body(page.getContent());
+    }
 }
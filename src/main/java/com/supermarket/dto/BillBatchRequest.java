@@ -0,0 +1,15 @@
+package com.supermarket.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class BillBatchRequest {
+    
+    @NotEmpty(message = "Batch must contain at least one bill")
+    @Size(max = 1000, message = "Batch cannot contain more than 1000 bills")
+    private List<@Valid BillRequest> bills;
+}
@@ -0,0 +1,33 @@
+package com.supermarket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillBatchResponse {
+    private int created;
+    private int failed;
+    private List<BillResult> results;
+    
+    // One per submitted bill, in request order; either bill or error is set
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BillResult {
+        private int index;
+        private BillResponse bill;
+        private String error;
+        
+        public static BillResult created(int index, BillResponse bill) {
+            return new BillResult(index, bill, null);
+        }
+        
+        public static BillResult failed(int index, String error) {
+            return new BillResult(index, null, error);
+        }
+    }
+}
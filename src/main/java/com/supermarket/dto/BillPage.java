@@ -0,0 +1,14 @@
+package com.supermarket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillPage {
+    private List<BillResponse> bills;
+    private String nextCursor;
+}
@@ -0,0 +1,16 @@
+package com.supermarket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A catalog import row that was not imported; line is the row's line number in the file
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogImportError {
+    private final String type = "error";
+    private int line;
+    private String barcode;
+    private String message;
+}
@@ -0,0 +1,14 @@
+package com.supermarket.dto;
+
+import lombok.Data;
+
+// Written after every committed chunk of a catalog import ("progress") and once at the end ("summary")
+@Data
+public class CatalogImportProgress {
+    private String type = "progress";
+    private long rows;
+    private long created;
+    private long updated;
+    private long unchanged;
+    private long failed;
+}
@@ -0,0 +1,17 @@
+package com.supermarket.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryFacet {
+    private String category;
+    private Integer totalCount;
+    // Quantity above zero, so low stock products are included
+    private Integer inStockCount;
+    private Integer lowStockCount;
+    private Integer outOfStockCount;
+}
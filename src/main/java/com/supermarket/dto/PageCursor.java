@@ -0,0 +1,36 @@
+package com.supermarket.dto;
+
+import com.supermarket.exception.InvalidRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position on a {@code (createdAt, id)} ordering, passed to clients as a
+ * URL-safe token.
+ */
+@Data
+@AllArgsConstructor
+public class PageCursor {
+    private LocalDateTime createdAt;
+    private Long id;
+    
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+            throw new InvalidRequestException("Invalid page cursor: " + token);
+        }
+    }
+}
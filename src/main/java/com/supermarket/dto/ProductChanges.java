@@ -0,0 +1,20 @@
+package com.supermarket.dto;
+
+import com.supermarket.model.ProductTombstone;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChanges {
+    // Created or updated products, in change order
+    private List<ProductView> products;
+    private List<ProductTombstone> deleted;
+    // Pass as since on the next request
+    private String since;
+    // More changes are already available; request again straight away
+    private boolean hasMore;
+}
@@ -0,0 +1,35 @@
+package com.supermarket.dto;
+
+import com.supermarket.model.Product;
+import com.supermarket.model.StockLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only copy of a {@link Product}, selected straight into this class by the catalog
+ * read queries so that no entity is managed for them. Serializes exactly like the entity.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductView {
+    private Long id;
+    private String name;
+    private String category;
+    private String barcode;
+    private Double price;
+    private Integer quantity;
+    private String status;
+    private StockLevel stockLevel;
+    private Integer lowStockThreshold;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    
+    public static ProductView of(Product product) {
+        return new ProductView(product.getId(), product.getName(), product.getCategory(), product.getBarcode(),
+                product.getPrice(), product.getQuantity(), product.getStatus(), product.getStockLevel(),
+                product.getLowStockThreshold(), product.getCreatedAt(), product.getUpdatedAt());
+    }
+}
@@ -0,0 +1,28 @@
+package com.supermarket.dto;
+
+import lombok.Data;
+
+@Data
+public class SalesTotals {
+    private final double revenue;
+    private final double tax;
+    private final double discount;
+    private final long transactionCount;
+    
+    // Aggregates over no rows come back as nulls
+    public SalesTotals(Double revenue, Double tax, Double discount, Long transactionCount) {
+        this.revenue = revenue != null ? revenue : 0.0;
+        this.tax = tax != null ? tax : 0.0;
+        this.discount = discount != null ? discount : 0.0;
+        this.transactionCount = transactionCount != null ? transactionCount : 0L;
+    }
+    
+    public static SalesTotals empty() {
+        return new SalesTotals(0.0, 0.0, 0.0, 0L);
+    }
+    
+    public SalesTotals plus(SalesTotals other) {
+        return new SalesTotals(revenue + other.revenue, tax + other.tax, discount + other.discount,
+                transactionCount + other.transactionCount);
+    }
+}
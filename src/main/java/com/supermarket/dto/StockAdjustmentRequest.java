@@ -0,0 +1,29 @@
+package com.supermarket.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class StockAdjustmentRequest {
+    
+    @NotEmpty(message = "At least one adjustment is required")
+    @Size(max = 10000, message = "Cannot apply more than 10000 adjustments at once")
+    private List<@Valid Line> adjustments;
+    
+    // Identifies the product by productId or by barcode
+    @Data
+    public static class Line {
+        private Long productId;
+        
+        private String barcode;
+        
+        @NotNull(message = "Adjustment is required")
+        private Integer adjustment;
+        
+        private String notes;
+    }
+}
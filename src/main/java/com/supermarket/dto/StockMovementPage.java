@@ -0,0 +1,15 @@
+package com.supermarket.dto;
+
+import com.supermarket.model.StockMovement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementPage {
+    private List<StockMovement> movements;
+    private String nextCursor;
+}
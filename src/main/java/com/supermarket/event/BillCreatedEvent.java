@@ -0,0 +1,16 @@
+package com.supermarket.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class BillCreatedEvent {
+    private final Long billId;
+    private final String billNumber;
+    private final LocalDateTime createdAt;
+    private final Double total;
+    private final Double tax;
+    private final Double discount;
+}
@@ -0,0 +1,18 @@
+package com.supermarket.event;
+
+import com.supermarket.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published whenever a product is created, edited, deleted or has its stock changed.
+ * Listeners run after commit and must not modify either product.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    // State before the change, or null when the product was created
+    private final Product previous;
+    // State after the change, or null when the product was deleted
+    private final Product current;
+}
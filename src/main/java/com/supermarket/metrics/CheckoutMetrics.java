@@ -0,0 +1,38 @@
+package com.supermarket.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for the stages of checkout, published as {@code checkout.stage{stage=...}}
+ * with a percentile histogram so p50 / p99 / p99.9 can be computed when scraped.
+ */
+@Component
+public class CheckoutMetrics {
+
+    private final Map<CheckoutStage, Timer> timers = new EnumMap<>(CheckoutStage.class);
+
+    public CheckoutMetrics(MeterRegistry registry) {
+        for (CheckoutStage stage : CheckoutStage.values()) {
+            timers.put(stage, Timer.builder("checkout.stage")
+                    .description("Time spent in one stage of creating a bill")
+                    .tag("stage", stage.getTag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Records the time since {@code startedNanos} against {@code stage} and returns the
+     * current time, so consecutive stages can be chained.
+     */
+    public long record(CheckoutStage stage, long startedNanos) {
+        long now = System.nanoTime();
+        timers.get(stage).record(now - startedNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+}
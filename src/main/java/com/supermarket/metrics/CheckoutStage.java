@@ -0,0 +1,23 @@
+package com.supermarket.metrics;
+
+/**
+ * Stages of {@code BillingService.createBill}, each timed separately.
+ */
+public enum CheckoutStage {
+    LOOKUP("lookup"),
+    STOCK_DEDUCT("stock_deduct"),
+    STOCK_READBACK("stock_readback"),
+    BILL_PERSIST("bill_persist"),
+    MOVEMENT_LOG("movement_log"),
+    CONVERT("convert");
+
+    private final String tag;
+
+    CheckoutStage(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,96 @@
+package com.supermarket.metrics;
+
+/**
+ * Counts the SQL statements Hibernate executes on the current thread, with their time and
+ * the number of entities loaded, from {@link #start()} until {@link #close()}. Each HTTP
+ * request is counted this way by {@link SqlStatementFilter}; tests can pin an operation
+ * to a fixed number of statements:
+ * <pre>{@code
+ * try (SqlStatementCount count = SqlStatementCount.start()) {
+ *     billingService.createBill(request);
+ *     count.assertStatements(7);
+ * }
+ * }</pre>
+ * A JDBC batch counts as one statement, since it is one round trip. Counts may be nested;
+ * an inner count's statements are also added to the enclosing one when it is closed.
+ */
+public final class SqlStatementCount implements AutoCloseable {
+
+    private static final ThreadLocal<SqlStatementCount> CURRENT = new ThreadLocal<>();
+
+    private final SqlStatementCount parent;
+    private long statements;
+    private long statementNanos;
+    private long entityLoads;
+
+    private SqlStatementCount(SqlStatementCount parent) {
+        this.parent = parent;
+    }
+
+    public static SqlStatementCount start() {
+        SqlStatementCount count = new SqlStatementCount(CURRENT.get());
+        CURRENT.set(count);
+        return count;
+    }
+
+    static void recordStatement(long nanos) {
+        SqlStatementCount count = CURRENT.get();
+        if (count != null) {
+            count.statements++;
+            count.statementNanos += nanos;
+        }
+    }
+
+    static void recordEntityLoad() {
+        SqlStatementCount count = CURRENT.get();
+        if (count != null) {
+            count.entityLoads++;
+        }
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public double getStatementMillis() {
+        return statementNanos / 1_000_000.0;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+
+    public void assertStatements(long expected) {
+        if (statements != expected) {
+            throw new AssertionError("Expected " + expected + " SQL statement(s) but " + statements + " ran");
+        }
+    }
+
+    public void assertStatementsAtMost(long max) {
+        if (statements > max) {
+            throw new AssertionError("Expected at most " + max + " SQL statement(s) but " + statements + " ran");
+        }
+    }
+
+    public void assertEntityLoadsAtMost(long max) {
+        if (entityLoads > max) {
+            throw new AssertionError("Expected at most " + max + " entity load(s) but " + entityLoads + " happened");
+        }
+    }
+
+    void add(SqlStatementCount other) {
+        statements += other.statements;
+        statementNanos += other.statementNanos;
+        entityLoads += other.entityLoads;
+    }
+
+    @Override
+    public void close() {
+        if (parent != null) {
+            parent.add(this);
+            CURRENT.set(parent);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
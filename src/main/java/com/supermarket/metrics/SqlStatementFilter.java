@@ -0,0 +1,124 @@
+package com.supermarket.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Counts the SQL statements behind every API request. Each request is logged at debug
+ * level with its statement count, statement time and entity loads; requests that run
+ * more statements than {@code monitoring.sql.statement-budget} are logged as warnings,
+ * which is usually an N+1 query. Counts are also published per endpoint as
+ * {@code http.server.requests.sql.statements}.
+ * <p>
+ * Streamed responses (catalog import, bill export) are written on an async thread after
+ * the handler returns; their statements are counted there too, and the request is
+ * recorded once streaming has finished. They are not held to the budget, since what they
+ * run grows with the data they stream.
+ */
+@Slf4j
+@Component
+public class SqlStatementFilter extends OncePerRequestFilter {
+
+    private static final String COUNT_ATTRIBUTE = SqlStatementFilter.class.getName() + ".count";
+    private static final String ASYNC_COUNT_ATTRIBUTE = SqlStatementFilter.class.getName() + ".asyncCount";
+
+    private final MeterRegistry meterRegistry;
+    private final int statementBudget;
+
+    public SqlStatementFilter(MeterRegistry meterRegistry,
+                              @Value("${monitoring.sql.statement-budget:25}") int statementBudget) {
+        this.meterRegistry = meterRegistry;
+        this.statementBudget = statementBudget;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!isAsyncDispatch(request)) {
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(COUNT_ATTRIBUTE, new AsyncCount());
+        }
+        SqlStatementCount count = SqlStatementCount.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            count.close();
+        }
+
+        SqlStatementCount earlier = (SqlStatementCount) request.getAttribute(COUNT_ATTRIBUTE);
+        if (earlier != null) {
+            count.add(earlier);
+        }
+        if (isAsyncStarted(request)) {
+            // Recorded when the async thread has finished and dispatched back here
+            request.setAttribute(COUNT_ATTRIBUTE, count);
+            return;
+        }
+        SqlStatementCount async = (SqlStatementCount) request.getAttribute(ASYNC_COUNT_ATTRIBUTE);
+        if (async != null) {
+            count.add(async);
+        }
+        record(request, count, async != null);
+    }
+
+    private void record(HttpServletRequest request, SqlStatementCount count, boolean streamed) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern != null ? pattern : "UNKNOWN");
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("SQL statements executed per request")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .register(meterRegistry)
+                .record(count.getStatements());
+
+        if (count.getStatements() > statementBudget && !streamed) {
+            log.warn("{} ran {} SQL statements ({} ms, {} entities loaded), over the budget of {}; "
+                            + "look for an N+1 query", endpoint, count.getStatements(),
+                    String.format("%.1f", count.getStatementMillis()), count.getEntityLoads(), statementBudget);
+        } else if (log.isDebugEnabled()) {
+            log.debug("{}: {} SQL statements in {} ms, {} entities loaded", endpoint, count.getStatements(),
+                    String.format("%.1f", count.getStatementMillis()), count.getEntityLoads());
+        }
+    }
+
+    // Counts on the async thread that runs a Callable or StreamingResponseBody handler
+    private static final class AsyncCount implements CallableProcessingInterceptor {
+
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            request.setAttribute(ASYNC_COUNT_ATTRIBUTE, SqlStatementCount.start(), RequestAttributes.SCOPE_REQUEST);
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            Object count = request.getAttribute(ASYNC_COUNT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (count != null) {
+                ((SqlStatementCount) count).close();
+            }
+        }
+    }
+}
@@ -9,14 +9,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "bills")
+@Table(name = "bills", indexes = @Index(name = "idx_bills_created_at_id", columnList = "created_at, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Bill {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bills_seq")
+    @SequenceGenerator(name = "bills_seq", sequenceName = "bills_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "bill_number", unique = true, nullable = false)
@@ -43,9 +44,6 @@ public class Bill {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
-        if (billNumber == null) {
-            billNumber = "BILL-" + System.currentTimeMillis();
-        }
     }
     
     public void addItem(BillItem item) {
@@ -1,21 +1,30 @@
 package com.supermarket.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_stock_level", columnList = "stock_level, id"),
+    // Change feed for catalog sync; every write sets updated_at
+    @Index(name = "idx_products_updated_at_id", columnList = "updated_at, id"),
+    @Index(name = "idx_products_facets_updated_at", columnList = "facets_updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Product name is required")
@@ -43,29 +52,95 @@ public class Product {
     @Column(nullable = false)
     private String status; // "In Stock" or "Out of Stock"
     
+    @Enumerated(EnumType.STRING)
+    @Column(name = "stock_level", length = 8)
+    private StockLevel stockLevel;
+    
     @Column(name = "low_stock_threshold")
     private Integer lowStockThreshold = 10;
     
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
     
+    // Position in the catalog change feed, so writers set it from the database's clock
+    // (ProductRepository.currentTimestamp) rather than this instance's
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Last updatedAt that changed the category or stock level, which is all the category
+    // lists and facets depend on, so their ETag does not change with every sale
+    @JsonIgnore
+    @Column(name = "facets_updated_at")
+    private LocalDateTime facetsUpdatedAt;
+
+    // Token of the last stock batch that changed this row; only ProductStockRepositoryImpl
+    // writes it, to tell which updates applied when the driver doesn't report counts
+    @JsonIgnore
+    @Column(name = "stock_adjustment", insertable = false, updatable = false)
+    private Long stockAdjustment;
+
+    @Transient
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String storedFacets;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
         updateStatus();
+        facetsUpdatedAt = updatedAt;
     }
     
     @PreUpdate
     protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
         updateStatus();
+        if (!facets().equals(storedFacets)) {
+            facetsUpdatedAt = updatedAt;
+        }
+    }
+    
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    protected void onStored() {
+        storedFacets = facets();
+    }
+    
+    private String facets() {
+        return category + "|" + stockLevel;
     }
     
     private void updateStatus() {
-        this.status = (this.quantity != null && this.quantity > 0) ? "In Stock" : "Out of Stock";
+        this.status = statusFor(this.quantity);
+        this.stockLevel = StockLevel.of(this.quantity, this.lowStockThreshold);
+    }
+    
+    public Product copy() {
+        Product copy = new Product();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setCategory(category);
+        copy.setBarcode(barcode);
+        copy.setPrice(price);
+        copy.setQuantity(quantity);
+        copy.setStatus(status);
+        copy.setStockLevel(stockLevel);
+        copy.setLowStockThreshold(lowStockThreshold);
+        copy.setCreatedAt(createdAt);
+        copy.setUpdatedAt(updatedAt);
+        return copy;
+    }
+    
+    public Product copyWithQuantity(Integer newQuantity) {
+        Product copy = copy();
+        copy.setQuantity(newQuantity);
+        copy.setStatus(statusFor(newQuantity));
+        copy.setStockLevel(StockLevel.of(newQuantity, lowStockThreshold));
+        return copy;
+    }
+    
+    public static String statusFor(Integer quantity) {
+        return (quantity != null && quantity > 0) ? "In Stock" : "Out of Stock";
     }
 }
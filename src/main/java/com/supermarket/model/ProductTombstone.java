@@ -0,0 +1,27 @@
+package com.supermarket.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Marks a deleted product for catalog sync clients; product ids are never reused
+@Entity
+@Table(name = "product_tombstones",
+       indexes = @Index(name = "idx_product_tombstones_deleted_at_id", columnList = "deleted_at, product_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductTombstone {
+    
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+    
+    @Column(nullable = false)
+    private String barcode;
+    
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
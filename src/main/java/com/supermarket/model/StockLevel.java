@@ -0,0 +1,17 @@
+package com.supermarket.model;
+
+/**
+ * Stock state of a product relative to its low-stock threshold.
+ */
+public enum StockLevel {
+    OK,
+    LOW,
+    OUT;
+
+    public static StockLevel of(Integer quantity, Integer lowStockThreshold) {
+        if (quantity == null || quantity <= 0) {
+            return OUT;
+        }
+        return lowStockThreshold != null && quantity <= lowStockThreshold ? LOW : OK;
+    }
+}
@@ -7,14 +7,19 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "stock_movements")
+@Table(name = "stock_movements", indexes = {
+    // Per-product history, newest first, resumed from a (createdAt, id) cursor
+    @Index(name = "idx_stock_movements_product_created_at_id", columnList = "product_id, created_at, id"),
+    @Index(name = "idx_stock_movements_created_at_id", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class StockMovement {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movements_seq")
+    @SequenceGenerator(name = "stock_movements_seq", sequenceName = "stock_movements_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "product_id", nullable = false)
@@ -48,6 +53,9 @@ public class StockMovement {
     
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Already set when the movement was journaled after its transaction
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
 }
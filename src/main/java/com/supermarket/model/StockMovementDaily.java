@@ -0,0 +1,50 @@
+package com.supermarket.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+// One product's stock movements of one type on one day, once they are older than the retention period
+@Entity
+@Table(name = "stock_movement_daily", uniqueConstraints = @UniqueConstraint(
+        name = "uk_stock_movement_daily", columnNames = {"product_id", "movement_date", "movement_type"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementDaily {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movement_daily_seq")
+    @SequenceGenerator(name = "stock_movement_daily_seq", sequenceName = "stock_movement_daily_seq", 
+                       allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    @Column(name = "movement_date", nullable = false)
+    private LocalDate movementDate;
+    
+    @Column(name = "movement_type", nullable = false)
+    private String movementType;
+    
+    @Column(name = "product_name", nullable = false)
+    private String productName;
+    
+    @Column(nullable = false)
+    private String barcode;
+    
+    @Column(nullable = false)
+    private Long quantity;
+    
+    @Column(name = "movement_count", nullable = false)
+    private Long movementCount;
+    
+    // Totals of one product's movements of one type, as summed by the repository
+    public StockMovementDaily(Long productId, String movementType, String productName, String barcode,
+                              Long quantity, Long movementCount) {
+        this(null, productId, null, movementType, productName, barcode, quantity, movementCount);
+    }
+}
@@ -1,13 +1,21 @@
 package com.supermarket.repository;
 
+import com.supermarket.dto.SalesTotals;
 import com.supermarket.model.Bill;
+import com.supermarket.model.BillItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BillRepository extends JpaRepository<Bill, Long> {
@@ -22,6 +30,31 @@ public interface BillRepository extends JpaRepository<Bill, Long> {
     @Query("SELECT COUNT(b) FROM Bill b WHERE b.createdAt BETWEEN :start AND :end")
     Long getTransactionCountBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
     
-    @Query("SELECT b FROM Bill b ORDER BY b.createdAt DESC")
-    List<Bill> findRecentBills();
+    @Query("SELECT new com.supermarket.dto.SalesTotals(SUM(b.total), SUM(b.tax), SUM(b.discount), COUNT(b)) " +
+           "FROM Bill b WHERE b.createdAt BETWEEN :start AND :end")
+    SalesTotals getTotalsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    @Query("SELECT MIN(b.createdAt) FROM Bill b")
+    Optional<LocalDateTime> findEarliestCreatedAt();
+    
+    @Query("SELECT b.id FROM Bill b ORDER BY b.createdAt DESC, b.id DESC")
+    List<Long> findRecentBillIds(Pageable pageable);
+    
+    @Query("SELECT b.id FROM Bill b WHERE b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Long> findBillIdsBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    // Item rows with their bill, grouped by bill, for exports that must not hold the range in memory.
+    // On MySQL the driver only streams when DB_URL sets useCursorFetch=true.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT i FROM BillItem i JOIN FETCH i.bill b WHERE b.createdAt BETWEEN :start AND :end " +
+           "ORDER BY b.createdAt, b.id, i.id")
+    Stream<BillItem> streamItemsByCreatedAtBetween(@Param("start") LocalDateTime start, 
+                                                   @Param("end") LocalDateTime end);
+    
+    @Query("SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.items WHERE b.id IN :ids")
+    List<Bill> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,31 @@
+package com.supermarket.repository;
+
+import com.supermarket.dto.SalesTotals;
+import com.supermarket.model.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, LocalDate> {
+    
+    // Native because Hibernate renders "column + double parameter" with a cast H2 rejects
+    @Modifying
+    @Query(value = "UPDATE daily_sales SET revenue = revenue + :revenue, tax = tax + :tax, " +
+                   "discount = discount + :discount, transaction_count = transaction_count + :transactions " +
+                   "WHERE sales_date = :date", nativeQuery = true)
+    int addSales(@Param("date") LocalDate date, @Param("revenue") Double revenue, 
+                 @Param("tax") Double tax, @Param("discount") Double discount,
+                 @Param("transactions") Long transactions);
+    
+    @Query("SELECT new com.supermarket.dto.SalesTotals(SUM(d.revenue), SUM(d.tax), SUM(d.discount), " +
+           "SUM(d.transactionCount)) FROM DailySales d WHERE d.salesDate BETWEEN :start AND :end")
+    SalesTotals getTotalsBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+    
+    @Query("SELECT MAX(d.salesDate) FROM DailySales d WHERE d.salesDate < :date")
+    Optional<LocalDate> findLatestSalesDateBefore(@Param("date") LocalDate date);
+}
@@ -1,29 +1,123 @@
 package com.supermarket.repository;
 
+import com.supermarket.dto.ProductView;
 import com.supermarket.model.Product;
+import com.supermarket.model.StockLevel;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductStockRepository {
+    
+    String SELECT_VIEW = "SELECT new com.supermarket.dto.ProductView(p.id, p.name, p.category, p.barcode, " +
+            "p.price, p.quantity, p.status, p.stockLevel, p.lowStockThreshold, p.createdAt, p.updatedAt) " +
+            "FROM Product p ";
     
     Optional<Product> findByBarcode(String barcode);
     
+    List<Product> findAllByBarcodeIn(Collection<String> barcodes);
+    
     boolean existsByBarcode(String barcode);
     
-    List<Product> findByNameContainingIgnoreCase(String name);
+    @Query(SELECT_VIEW + "ORDER BY p.id")
+    List<ProductView> findAllViews();
+    
+    @Query(SELECT_VIEW + "WHERE p.id = :id")
+    Optional<ProductView> findViewById(@Param("id") Long id);
+    
+    @Query(SELECT_VIEW + "WHERE p.id IN :ids ORDER BY p.id")
+    List<ProductView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(SELECT_VIEW + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) ORDER BY p.id")
+    List<ProductView> findViewsByNameContaining(@Param("name") String name, Pageable pageable);
+    
+    @Query("SELECT p.id AS id, p.name AS name FROM Product p")
+    List<ProductName> findAllNames();
+    
+    @Query(SELECT_VIEW + "WHERE p.updatedAt < :until " +
+           "AND (p.updatedAt > :updatedAt OR (p.updatedAt = :updatedAt AND p.id > :id)) ORDER BY p.updatedAt, p.id")
+    List<ProductView> findViewsChangedAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                            @Param("until") LocalDateTime until, Pageable pageable);
+    
+    @Query(SELECT_VIEW + "WHERE p.category = :category ORDER BY p.id")
+    List<ProductView> findViewsByCategory(@Param("category") String category);
+    
+    @Query(value = SELECT_VIEW + "WHERE p.stockLevel = :stockLevel",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.stockLevel = :stockLevel")
+    Page<ProductView> findViewsByStockLevel(@Param("stockLevel") StockLevel stockLevel, Pageable pageable);
     
-    List<Product> findByCategory(String category);
+    long countByStockLevel(StockLevel stockLevel);
     
-    @Query("SELECT p FROM Product p WHERE p.quantity <= p.lowStockThreshold AND p.quantity > 0")
-    List<Product> findLowStockProducts();
+    // Sets stock_level on rows written before the column existed, with the same rules as StockLevel.of
+    @Modifying
+    @Query("UPDATE Product p SET p.stockLevel = " +
+           "CASE WHEN p.quantity <= 0 THEN com.supermarket.model.StockLevel.OUT " +
+           "WHEN p.quantity <= p.lowStockThreshold THEN com.supermarket.model.StockLevel.LOW " +
+           "ELSE com.supermarket.model.StockLevel.OK END " +
+           "WHERE p.stockLevel IS NULL")
+    int backfillStockLevels();
     
-    @Query("SELECT p FROM Product p WHERE p.status = 'Out of Stock'")
-    List<Product> findOutOfStockProducts();
+    @Query("SELECT p.id AS id, p.category AS category, p.quantity AS quantity, " +
+           "p.lowStockThreshold AS lowStockThreshold FROM Product p")
+    List<CategoryStock> findAllCategoryStock();
     
     @Query("SELECT DISTINCT p.category FROM Product p ORDER BY p.category")
     List<String> findAllCategories();
+    
+    // Locks the rows in id order, the same order checkout deducts stock in
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.quantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") Long id);
+    
+    @Query("SELECT p.id AS id, p.quantity AS quantity FROM Product p WHERE p.id IN :ids")
+    List<StockQuantity> findStockQuantities(@Param("ids") Collection<Long> ids);
+    
+    // The database's clock, for updatedAt: app instances' clocks may disagree
+    @Query(value = "SELECT LOCALTIMESTAMP(6)", nativeQuery = true)
+    LocalDateTime currentTimestamp();
+    
+    // Latest change of any kind, of the facets, and deletion, for the catalog ETags; all indexed
+    @Query(value = "SELECT (SELECT MAX(updated_at) FROM products) AS updatedAt, "
+            + "(SELECT MAX(facets_updated_at) FROM products) AS facetsUpdatedAt, "
+            + "(SELECT MAX(deleted_at) FROM product_tombstones) AS deletedAt, "
+            + "LOCALTIMESTAMP(6) AS databaseTime", nativeQuery = true)
+    CatalogState findCatalogState();
+    
+    interface ProductName {
+        Long getId();
+        String getName();
+    }
+    
+    interface CatalogState {
+        LocalDateTime getUpdatedAt();
+        LocalDateTime getFacetsUpdatedAt();
+        LocalDateTime getDeletedAt();
+        LocalDateTime getDatabaseTime();
+    }
+    
+    interface CategoryStock {
+        Long getId();
+        String getCategory();
+        Integer getQuantity();
+        Integer getLowStockThreshold();
+    }
+    
+    interface StockQuantity {
+        Long getId();
+        Integer getQuantity();
+    }
 }
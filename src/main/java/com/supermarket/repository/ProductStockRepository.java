@@ -0,0 +1,15 @@
+package com.supermarket.repository;
+
+import java.util.List;
+import java.util.SortedMap;
+
+public interface ProductStockRepository {
+    
+    /**
+     * Changes the stock of every product in {@code deltas} in place, in id order, as one
+     * JDBC batch, and stamps updatedAt with the database's clock. Returns the ids whose
+     * update was refused because it would take the quantity below zero, or because the
+     * product no longer exists.
+     */
+    List<Long> adjustQuantities(SortedMap<Long, Integer> deltas);
+}
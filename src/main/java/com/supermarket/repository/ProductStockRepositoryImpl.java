@@ -0,0 +1,137 @@
+package com.supermarket.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionEventListener;
+import org.hibernate.engine.spi.SessionImplementor;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+class ProductStockRepositoryImpl implements ProductStockRepository {
+    
+    // Same rules as StockLevel.of; status, facets_updated_at and stock_level are assigned
+    // before quantity, and facets_updated_at before stock_level, because MySQL evaluates
+    // SET clauses left to right
+    private static final String ADJUST_QUANTITY = "UPDATE products SET "
+            + "status = CASE WHEN quantity + ? > 0 THEN 'In Stock' ELSE 'Out of Stock' END, "
+            + "facets_updated_at = CASE WHEN stock_level = CASE WHEN quantity + ? <= 0 THEN 'OUT' "
+            + "WHEN quantity + ? <= low_stock_threshold THEN 'LOW' ELSE 'OK' END "
+            + "THEN facets_updated_at ELSE LOCALTIMESTAMP(6) END, "
+            + "stock_level = CASE WHEN quantity + ? <= 0 THEN 'OUT' "
+            + "WHEN quantity + ? <= low_stock_threshold THEN 'LOW' ELSE 'OK' END, "
+            + "quantity = quantity + ?, "
+            + "updated_at = LOCALTIMESTAMP(6), "
+            + "stock_adjustment = ? "
+            + "WHERE id = ? AND quantity + ? >= 0";
+    
+    private static final String FIND_ADJUSTED = "SELECT id FROM products WHERE stock_adjustment = ? AND id IN ";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<Long> adjustQuantities(SortedMap<Long, Integer> deltas) {
+        List<Long> refused = new ArrayList<>();
+        if (deltas.isEmpty()) {
+            return refused;
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        session.doWork(connection -> {
+            // Raw statements don't get the transaction's timeout from Hibernate
+            int timeout = session.getJdbcCoordinator().determineRemainingTransactionTimeOutPeriod();
+            refused.addAll(adjustQuantities(connection, deltas, timeout, session.getEventListenerManager()));
+        });
+        return refused;
+    }
+    
+    /**
+     * Runs the batch on {@code connection}. Drivers may answer a batch with
+     * {@link java.sql.Statement#SUCCESS_NO_INFO} instead of update counts (MySQL does with
+     * rewriteBatchedStatements=true), so every row the batch changes is stamped with a token
+     * of its own, and rows without an exact count are confirmed by looking for that token.
+     * Rows this transaction changed stay locked until it ends, so no one else can restamp them.
+     */
+    static List<Long> adjustQuantities(Connection connection, SortedMap<Long, Integer> deltas, int timeout,
+                                       SessionEventListener events) throws SQLException {
+        List<Long> ids = new ArrayList<>(deltas.keySet());
+        long token = ThreadLocalRandom.current().nextLong();
+        int[] counts;
+        try (PreparedStatement statement = connection.prepareStatement(ADJUST_QUANTITY)) {
+            if (timeout > 0) {
+                statement.setQueryTimeout(timeout);
+            }
+            for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                int change = delta.getValue();
+                for (int parameter = 1; parameter <= 6; parameter++) {
+                    statement.setInt(parameter, change);
+                }
+                statement.setLong(7, token);
+                statement.setLong(8, delta.getKey());
+                statement.setInt(9, change);
+                statement.addBatch();
+            }
+            // Reported like Hibernate's own batches, so statement counts include it
+            events.jdbcExecuteBatchStart();
+            try {
+                counts = statement.executeBatch();
+            } finally {
+                events.jdbcExecuteBatchEnd();
+            }
+        }
+        
+        List<Long> refused = new ArrayList<>();
+        List<Long> unknown = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            int count = i < counts.length ? counts[i] : Integer.MIN_VALUE;
+            if (count == 0) {
+                refused.add(ids.get(i));
+            } else if (count != 1) {
+                unknown.add(ids.get(i));
+            }
+        }
+        if (!unknown.isEmpty()) {
+            Set<Long> adjusted = findAdjusted(connection, unknown, token, timeout, events);
+            for (Long id : unknown) {
+                if (!adjusted.contains(id)) {
+                    refused.add(id);
+                }
+            }
+            Collections.sort(refused);
+        }
+        return refused;
+    }
+    
+    private static Set<Long> findAdjusted(Connection connection, List<Long> ids, long token, int timeout,
+                                          SessionEventListener events) throws SQLException {
+        String sql = FIND_ADJUSTED + "(" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        Set<Long> adjusted = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (timeout > 0) {
+                statement.setQueryTimeout(timeout);
+            }
+            statement.setLong(1, token);
+            for (int i = 0; i < ids.size(); i++) {
+                statement.setLong(i + 2, ids.get(i));
+            }
+            events.jdbcExecuteStatementStart();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    adjusted.add(rows.getLong(1));
+                }
+            } finally {
+                events.jdbcExecuteStatementEnd();
+            }
+        }
+        return adjusted;
+    }
+}
@@ -0,0 +1,25 @@
+package com.supermarket.repository;
+
+import com.supermarket.model.ProductTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+    
+    @Query("SELECT t FROM ProductTombstone t WHERE t.deletedAt < :until " +
+           "AND (t.deletedAt > :deletedAt OR (t.deletedAt = :deletedAt AND t.productId > :id)) " +
+           "ORDER BY t.deletedAt, t.productId")
+    List<ProductTombstone> findDeletedAfter(@Param("deletedAt") LocalDateTime deletedAt, @Param("id") Long id,
+                                            @Param("until") LocalDateTime until, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM ProductTombstone t WHERE t.deletedAt < :cutoff")
+    int deleteDeletedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
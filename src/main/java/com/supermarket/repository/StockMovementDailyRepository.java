@@ -0,0 +1,16 @@
+package com.supermarket.repository;
+
+import com.supermarket.model.StockMovementDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface StockMovementDailyRepository extends JpaRepository<StockMovementDaily, Long> {
+    
+    List<StockMovementDaily> findByMovementDate(LocalDate movementDate);
+    
+    List<StockMovementDaily> findByProductIdAndMovementDateBetweenOrderByMovementDateDescMovementTypeAsc(
+            Long productId, LocalDate start, LocalDate end);
+}
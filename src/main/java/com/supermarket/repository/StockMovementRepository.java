@@ -1,19 +1,48 @@
 package com.supermarket.repository;
 
 import com.supermarket.model.StockMovement;
+import com.supermarket.model.StockMovementDaily;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
     
-    List<StockMovement> findByProductIdOrderByCreatedAtDesc(Long productId);
-    
     List<StockMovement> findByBarcodeOrderByCreatedAtDesc(String barcode);
     
     List<StockMovement> findByCreatedAtBetweenOrderByCreatedAtDesc(LocalDateTime start, LocalDateTime end);
     
     List<StockMovement> findTop50ByOrderByCreatedAtDesc();
+    
+    @Query("SELECT m FROM StockMovement m WHERE m.productId = :productId " +
+           "AND m.createdAt >= :from AND m.createdAt < :to ORDER BY m.createdAt DESC, m.id DESC")
+    List<StockMovement> findHistory(@Param("productId") Long productId, @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to, Pageable pageable);
+    
+    // The cursor already lies before the upper bound
+    @Query("SELECT m FROM StockMovement m WHERE m.productId = :productId AND m.createdAt >= :from " +
+           "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<StockMovement> findHistoryBefore(@Param("productId") Long productId, @Param("from") LocalDateTime from,
+                                          @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                          Pageable pageable);
+    
+    @Query("SELECT MIN(m.createdAt) FROM StockMovement m")
+    Optional<LocalDateTime> findEarliestCreatedAt();
+    
+    @Query("SELECT new com.supermarket.model.StockMovementDaily(m.productId, m.movementType, " +
+           "MAX(m.productName), MAX(m.barcode), SUM(m.quantity), COUNT(m)) FROM StockMovement m " +
+           "WHERE m.createdAt >= :start AND m.createdAt < :end GROUP BY m.productId, m.movementType")
+    List<StockMovementDaily> summarizeBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    @Modifying
+    @Query("DELETE FROM StockMovement m WHERE m.createdAt >= :start AND m.createdAt < :end")
+    int deleteCreatedBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
@@ -0,0 +1,277 @@
+package com.supermarket.search;
+
+import com.supermarket.dto.CategoryFacet;
+import com.supermarket.event.ProductChangedEvent;
+import com.supermarket.model.Product;
+import com.supermarket.model.StockLevel;
+import com.supermarket.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory category facets: for every category, a {@link BitSet} of that category's
+ * product slots per {@link StockLevel}, so category listings, per-category counts and
+ * "low stock in Dairy" style filters are answered without touching the products table.
+ * Slots are numbered per category, so each category's bitsets are only as large as the
+ * category.
+ * <p>
+ * Kept current from committed {@link ProductChangedEvent}s and rebuilt from a narrow
+ * projection at startup and every {@code product.facets.rebuild-interval-ms}. Events can
+ * arrive out of order and other instances' changes arrive not at all, so the rebuild is
+ * what bounds how far the index can drift. Until it is first loaded, {@link #isReady()}
+ * is false.
+ */
+@Slf4j
+@Component
+public class CategoryFacetIndex {
+
+    private static final StockLevel[] LEVELS = StockLevel.values();
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Facet> facets = new TreeMap<>();
+    private final Map<Long, Placement> placements = new HashMap<>();
+    // Events committed while a rebuild reads the table, replayed on top of its snapshot
+    private List<ProductChangedEvent> missed;
+    private volatile LocalDateTime loadedAt;
+    private volatile boolean ready;
+
+    public CategoryFacetIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Database time at which the last rebuild read the products table; the index holds
+     * every change committed before it.
+     */
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    /** Categories with at least one product, optionally only those with products at {@code level}. */
+    public List<String> getCategories(StockLevel level) {
+        lock.readLock().lock();
+        try {
+            List<String> result = new ArrayList<>(facets.size());
+            facets.forEach((category, facet) -> {
+                if (level == null || facet.count(level) > 0) {
+                    result.add(category);
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Ids of the products in {@code category}, optionally only those at {@code level}, in id order. */
+    public List<Long> getProductIds(String category, StockLevel level) {
+        lock.readLock().lock();
+        try {
+            Facet facet = facets.get(category);
+            if (facet == null) {
+                return List.of();
+            }
+            long[] result = new long[level == null ? facet.total : facet.count(level)];
+            int size = 0;
+            for (StockLevel candidate : LEVELS) {
+                if (level == null || level == candidate) {
+                    BitSet slots = facet.slots[candidate.ordinal()];
+                    for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                        result[size++] = facet.ids[slot];
+                    }
+                }
+            }
+            Arrays.sort(result, 0, size);
+            return Arrays.stream(result, 0, size).boxed().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Per-category counts, optionally only for categories with products at {@code level}. */
+    public List<CategoryFacet> getFacets(StockLevel level) {
+        lock.readLock().lock();
+        try {
+            List<CategoryFacet> result = new ArrayList<>(facets.size());
+            facets.forEach((category, facet) -> {
+                if (level == null || facet.count(level) > 0) {
+                    int ok = facet.count(StockLevel.OK);
+                    int low = facet.count(StockLevel.LOW);
+                    result.add(new CategoryFacet(category, facet.total, ok + low, low, facet.count(StockLevel.OUT)));
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${product.facets.rebuild-interval-ms:30000}",
+               initialDelayString = "${product.facets.rebuild-interval-ms:30000}")
+    public void load() {
+        List<ProductChangedEvent> replay = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            missed = replay;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            // Read the clock first, so the snapshot holds everything committed before it
+            LocalDateTime snapshotAt = productRepository.currentTimestamp();
+            List<ProductRepository.CategoryStock> products = productRepository.findAllCategoryStock();
+            lock.writeLock().lock();
+            try {
+                facets.clear();
+                placements.clear();
+                for (ProductRepository.CategoryStock product : products) {
+                    put(product.getId(), product.getCategory(),
+                            StockLevel.of(product.getQuantity(), product.getLowStockThreshold()));
+                }
+                replay.forEach(this::apply);
+                loadedAt = snapshotAt;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Indexed {} products into {} category facets", products.size(), facets.size());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                missed = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (missed != null) {
+                missed.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(ProductChangedEvent event) {
+        Product current = event.getCurrent();
+        if (current == null) {
+            remove(event.getPrevious().getId());
+        } else {
+            put(current.getId(), current.getCategory(),
+                    StockLevel.of(current.getQuantity(), current.getLowStockThreshold()));
+        }
+    }
+
+    private void put(Long id, String category, StockLevel level) {
+        Placement placement = placements.get(id);
+        if (placement != null && placement.facet() == facets.get(category)) {
+            if (placement.level() != level) {
+                placement.facet().move(placement.slot(), placement.level(), level);
+                placements.put(id, new Placement(placement.facet(), placement.slot(), level));
+            }
+            return;
+        }
+        if (placement != null) {
+            unlink(placement);
+        }
+        Facet facet = facets.computeIfAbsent(category, key -> new Facet(category));
+        placements.put(id, new Placement(facet, facet.add(id, level), level));
+    }
+
+    private void remove(Long id) {
+        Placement placement = placements.remove(id);
+        if (placement != null) {
+            unlink(placement);
+        }
+    }
+
+    private void unlink(Placement placement) {
+        Facet facet = placement.facet();
+        facet.remove(placement.slot(), placement.level());
+        if (facet.total == 0) {
+            facets.remove(facet.category);
+        }
+    }
+
+    private record Placement(Facet facet, int slot, StockLevel level) {
+    }
+
+    private static final class Facet {
+        private final String category;
+        private final BitSet[] slots = new BitSet[LEVELS.length];
+        private final int[] counts = new int[LEVELS.length];
+        private long[] ids = new long[16];
+        private int[] freeSlots = new int[16];
+        private int freeCount;
+        private int slotCount;
+        private int total;
+
+        private Facet(String category) {
+            this.category = category;
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = new BitSet();
+            }
+        }
+
+        int add(long id, StockLevel level) {
+            // Reuse freed slots so the bitsets stay as dense as the category
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+            if (slot == ids.length) {
+                ids = Arrays.copyOf(ids, slot * 2);
+            }
+            ids[slot] = id;
+            slots[level.ordinal()].set(slot);
+            counts[level.ordinal()]++;
+            total++;
+            return slot;
+        }
+
+        void move(int slot, StockLevel from, StockLevel to) {
+            slots[from.ordinal()].clear(slot);
+            counts[from.ordinal()]--;
+            slots[to.ordinal()].set(slot);
+            counts[to.ordinal()]++;
+        }
+
+        void remove(int slot, StockLevel level) {
+            slots[level.ordinal()].clear(slot);
+            counts[level.ordinal()]--;
+            total--;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+
+        int count(StockLevel level) {
+            return counts[level.ordinal()];
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.supermarket.search;
+
+import com.supermarket.event.ProductChangedEvent;
+import com.supermarket.model.Product;
+import com.supermarket.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory substring index over product names.
+ * <p>
+ * Every product gets a dense int slot, and each trigram of its lower-cased name maps to
+ * a sorted {@code int[]} of slots. A query intersects the postings of its own trigrams,
+ * smallest first, then verifies the surviving names with {@code contains} since sharing
+ * all trigrams does not guarantee a match. Queries shorter than three characters have
+ * no trigram and fall back to scanning the names held here, which is still far cheaper
+ * than a {@code LIKE '%...%'} scan of the table.
+ * <p>
+ * The index is built once at startup and then kept current from committed
+ * {@link ProductChangedEvent}s. Until it is built, {@link #isReady()} is false.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+    // Rebuild the slot space once this many slots belong to deleted products
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private long[] ids = new long[1024];
+    private String[] names = new String[1024];
+    private int slotCount;
+    private int deadSlots;
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the ids of products whose name contains {@code keyword} (ignoring case),
+     * best match first: exact name, then prefix, then a match at a word start, then
+     * anywhere; ties go to the shorter name.
+     */
+    public List<Long> search(String keyword, int limit) {
+        String query = normalize(keyword);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            int[] candidates = query.length() < GRAM ? allSlots() : candidates(query);
+            List<Match> matches = new ArrayList<>();
+            for (int slot : candidates) {
+                String name = names[slot];
+                int position = name != null ? name.indexOf(query) : -1;
+                if (position >= 0) {
+                    matches.add(new Match(slot, rank(name, query, position), name.length()));
+                }
+            }
+            matches.sort(null);
+
+            int size = Math.min(limit, matches.size());
+            List<Long> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(ids[matches.get(i).slot]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.nanoTime();
+        // Built under the write lock so events committed meanwhile are applied on top of the snapshot
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (ProductRepository.ProductName product : productRepository.findAllNames()) {
+                put(product.getId(), product.getName());
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} product names for search in {} ms",
+                slotsById.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product previous = event.getPrevious();
+        Product current = event.getCurrent();
+        if (previous != null && current != null && previous.getName().equals(current.getName())) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (current == null) {
+                remove(previous.getId());
+            } else {
+                put(current.getId(), current.getName());
+            }
+            if (deadSlots > COMPACT_THRESHOLD && deadSlots > slotsById.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int[] candidates(String query) {
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            Postings list = postings.get(gram(query, i));
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).slots, lists.get(0).size);
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = lists.get(i).retainAll(result, size);
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private int[] allSlots() {
+        int[] all = new int[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            all[slot] = slot;
+        }
+        return all;
+    }
+
+    private void put(Long id, String name) {
+        Integer slot = slotsById.get(id);
+        if (slot != null) {
+            unindex(slot);
+        } else {
+            slot = slotCount++;
+            if (slot == ids.length) {
+                ids = Arrays.copyOf(ids, slot * 2);
+                names = Arrays.copyOf(names, slot * 2);
+            }
+            ids[slot] = id;
+            slotsById.put(id, slot);
+        }
+        String normalized = normalize(name);
+        names[slot] = normalized;
+        for (long gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, key -> new Postings()).add(slot);
+        }
+    }
+
+    private void remove(Long id) {
+        Integer slot = slotsById.remove(id);
+        if (slot != null) {
+            unindex(slot);
+            names[slot] = null;
+            deadSlots++;
+        }
+    }
+
+    private void unindex(int slot) {
+        for (long gram : grams(names[slot])) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(slot) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private void compact() {
+        long[] liveIds = new long[slotsById.size()];
+        String[] liveNames = new String[liveIds.length];
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (names[slot] != null) {
+                liveIds[live] = ids[slot];
+                liveNames[live++] = names[slot];
+            }
+        }
+        clear();
+        for (int i = 0; i < live; i++) {
+            put(liveIds[i], liveNames[i]);
+        }
+    }
+
+    private void clear() {
+        postings.clear();
+        slotsById.clear();
+        ids = new long[1024];
+        names = new String[1024];
+        slotCount = 0;
+        deadSlots = 0;
+    }
+
+    private static long[] grams(String name) {
+        if (name == null || name.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[name.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = gram(name, i);
+        }
+        // Repeated trigrams must only be posted once
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static long gram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static int rank(String name, String query, int position) {
+        if (position == 0) {
+            return name.length() == query.length() ? 0 : 1;
+        }
+        if (name.charAt(position - 1) == ' ' || name.contains(" " + query)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private record Match(int slot, int rank, int length) implements Comparable<Match> {
+        @Override
+        public int compareTo(Match other) {
+            int byRank = Integer.compare(rank, other.rank);
+            return byRank != 0 ? byRank : Integer.compare(length, other.length);
+        }
+    }
+
+    /** Sorted, growable list of slots. */
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            // Slots are mostly handed out in increasing order, so this is usually an append
+            int index = size == 0 || slots[size - 1] < slot ? size : Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0 && index < size) {
+                return;
+            }
+            int insertAt = index >= 0 ? index : -index - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, insertAt, slots, insertAt + 1, size - insertAt);
+            slots[insertAt] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /** Keeps the first {@code count} entries of sorted {@code target} that are also in this list. */
+        int retainAll(int[] target, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                int index = Arrays.binarySearch(slots, from, size, target[i]);
+                if (index >= 0) {
+                    target[kept++] = target[i];
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.supermarket.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues bill numbers of the form {@code BILL-<epoch millis>-<node>-<sequence>},
+ * e.g. {@code BILL-1792315413632-03-0007}.
+ * <p>
+ * The millisecond timestamp and a 12-bit per-millisecond sequence are packed into one
+ * long that only ever moves forward through a CAS, so numbers are unique and increasing
+ * per node without locks or a database round-trip. If more than 4096 numbers are taken
+ * in one millisecond, or the clock steps back, the packed value simply runs ahead of the
+ * clock until it catches up. The node id keeps instances apart and must be distinct for
+ * every instance sharing a database.
+ */
+@Component
+public class BillNumberGenerator {
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_NODE_ID = 99;
+
+    private final String nodeId;
+    private final AtomicLong lastIssued = new AtomicLong();
+
+    public BillNumberGenerator(@Value("${billing.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException(
+                    "billing.node-id must be between 0 and " + MAX_NODE_ID + " but was " + nodeId);
+        }
+        this.nodeId = nodeId < 10 ? "0" + nodeId : String.valueOf(nodeId);
+    }
+
+    public String next() {
+        long candidate = System.currentTimeMillis() << SEQUENCE_BITS;
+        long issued = lastIssued.accumulateAndGet(candidate, (last, now) -> Math.max(last + 1, now));
+
+        String sequence = String.valueOf(issued & SEQUENCE_MASK);
+        StringBuilder number = new StringBuilder(28)
+                .append("BILL-")
+                .append(issued >>> SEQUENCE_BITS)
+                .append('-')
+                .append(nodeId)
+                .append('-');
+        for (int i = sequence.length(); i < 4; i++) {
+            number.append('0');
+        }
+        return number.append(sequence).toString();
+    }
+}
@@ -1,77 +1,279 @@
 package com.supermarket.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermarket.cache.ProductCache;
+import com.supermarket.dto.BillBatchResponse;
+import com.supermarket.dto.BillPage;
 import com.supermarket.dto.BillRequest;
 import com.supermarket.dto.BillResponse;
+import com.supermarket.dto.ExportFormat;
+import com.supermarket.dto.PageCursor;
+import com.supermarket.event.BillCreatedEvent;
+import com.supermarket.event.ProductChangedEvent;
 import com.supermarket.exception.InsufficientStockException;
 import com.supermarket.exception.ResourceNotFoundException;
+import com.supermarket.metrics.CheckoutMetrics;
+import com.supermarket.metrics.CheckoutStage;
 import com.supermarket.model.Bill;
 import com.supermarket.model.BillItem;
 import com.supermarket.model.Product;
 import com.supermarket.model.StockMovement;
 import com.supermarket.repository.BillRepository;
 import com.supermarket.repository.ProductRepository;
-import com.supermarket.repository.StockMovementRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class BillingService {
     
+    private static final String CSV_HEADER = "bill_number,created_at,product_id,barcode,product_name,price,quantity,"
+            + "line_subtotal,bill_subtotal,bill_tax,bill_discount,bill_total\n";
+    
     private final BillRepository billRepository;
     private final ProductRepository productRepository;
-    private final StockMovementRepository stockMovementRepository;
+    private final StockMovementJournal stockMovementJournal;
+    private final ProductCache productCache;
+    private final BillNumberGenerator billNumberGenerator;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CheckoutMetrics checkoutMetrics;
+    private final PlatformTransactionManager transactionManager;
+    
+    @Value("${billing.page.default-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${billing.page.max-size:500}")
+    private int maxPageSize;
+    
+    @Value("${billing.batch.chunk-size:50}")
+    private int batchChunkSize;
     
     @Transactional
     public BillResponse createBill(BillRequest request) {
+        long started = System.nanoTime();
         Bill bill = new Bill();
+        bill.setBillNumber(billNumberGenerator.next());
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Integer> requestedQuantities = requestedQuantities(request);
         
-        // Process each item
-        for (BillRequest.BillItemDTO itemDTO : request.getItems()) {
-            // Fetch product by barcode
-            Product product = productRepository.findByBarcode(itemDTO.getBarcode())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                        "Product not found with barcode: " + itemDTO.getBarcode()));
-            
-            // Check stock availability
-            if (product.getQuantity() < itemDTO.getQuantity()) {
-                throw new InsufficientStockException(
-                    "Insufficient stock for product: " + product.getName() + 
-                    ". Available: " + product.getQuantity() + ", Requested: " + itemDTO.getQuantity());
-            }
-            
-            // Create bill item
-            BillItem billItem = new BillItem();
-            billItem.setProductId(product.getId());
-            billItem.setProductName(product.getName());
-            billItem.setBarcode(product.getBarcode());
-            billItem.setPrice(product.getPrice());
-            billItem.setQuantity(itemDTO.getQuantity());
-            
-            bill.addItem(billItem);
-            
-            // Deduct stock
-            Integer previousStock = product.getQuantity();
-            product.setQuantity(previousStock - itemDTO.getQuantity());
-            productRepository.save(product);
+        // Resolve products from the cache, loading the misses in one query
+        Map<String, Product> products = productCache.getAll(requestedQuantities.keySet(),
+                productRepository::findAllByBarcodeIn);
+        addItems(bill, requestedQuantities, products);
+        started = checkoutMetrics.record(CheckoutStage.LOOKUP, started);
+        
+        // Deduct stock with guarded updates sent as one batch, in product id order so that
+        // concurrent bills lock the same rows in the same order
+        Map<Long, BillItem> itemsById = bill.getItems().stream()
+                .collect(Collectors.toMap(BillItem::getProductId, Function.identity()));
+        TreeMap<Long, Integer> deductions = new TreeMap<>();
+        itemsById.forEach((id, item) -> deductions.put(id, -item.getQuantity()));
+        List<Long> refused = productRepository.adjustQuantities(deductions);
+        if (!refused.isEmpty()) {
+            BillItem item = itemsById.get(refused.get(0));
+            throw stockNotDeducted(products.get(item.getBarcode()), item.getQuantity());
+        }
+        started = checkoutMetrics.record(CheckoutStage.STOCK_DEDUCT, started);
+        
+        // Read back the deducted stock; the rows stay locked until commit
+        Map<Long, Integer> newStock = productRepository.findStockQuantities(deductions.keySet()).stream()
+                .collect(Collectors.toMap(ProductRepository.StockQuantity::getId,
+                        ProductRepository.StockQuantity::getQuantity));
+        started = checkoutMetrics.record(CheckoutStage.STOCK_READBACK, started);
+        
+        List<StockMovement> movements = new ArrayList<>();
+        for (BillItem item : bill.getItems()) {
+            Product product = products.get(item.getBarcode());
+            Integer quantity = newStock.get(item.getProductId());
+            movements.add(createStockMovement(product, item.getQuantity(), quantity + item.getQuantity(), quantity));
             
-            // Log stock movement
-            logStockMovement(product, itemDTO.getQuantity(), previousStock, 
-                           product.getQuantity(), bill.getBillNumber());
+            Product updated = product.copyWithQuantity(quantity);
+            updated.setUpdatedAt(now);
+            eventPublisher.publishEvent(
+                    new ProductChangedEvent(product.copyWithQuantity(quantity + item.getQuantity()), updated));
         }
         
         // Calculate totals
         bill.calculateTotals(request.getTaxRate(), request.getDiscount());
         
-        // Save bill
+        // Save bill, then log its stock movements in one batch. Each is flushed here rather
+        // than at commit so that its inserts are timed as its own stage.
         Bill savedBill = billRepository.save(bill);
+        entityManager.flush();
+        started = checkoutMetrics.record(CheckoutStage.BILL_PERSIST, started);
         
-        return convertToResponse(savedBill);
+        movements.forEach(movement -> movement.setBillNumber(savedBill.getBillNumber()));
+        stockMovementJournal.record(movements);
+        entityManager.flush();
+        started = checkoutMetrics.record(CheckoutStage.MOVEMENT_LOG, started);
+        
+        eventPublisher.publishEvent(new BillCreatedEvent(savedBill.getId(), savedBill.getBillNumber(),
+                savedBill.getCreatedAt(), savedBill.getTotal(), savedBill.getTax(), savedBill.getDiscount()));
+        
+        BillResponse response = convertToResponse(savedBill);
+        checkoutMetrics.record(CheckoutStage.CONVERT, started);
+        return response;
+    }
+    
+    /**
+     * Creates a batch of bills, e.g. the backlog of a till that was offline, in transactions
+     * of {@code billing.batch.chunk-size} bills. Within a chunk each product's stock is
+     * deducted once for all of its bills, and bills and stock movements are inserted in JDBC
+     * batches. If a chunk cannot be committed as a whole, typically because a product ran
+     * out part-way through it, its bills are retried one per transaction so that only the
+     * bills that cannot be filled fail. Results are returned per bill, in request order.
+     */
+    public BillBatchResponse createBills(List<BillRequest> requests) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        BillBatchResponse.BillResult[] results = new BillBatchResponse.BillResult[requests.size()];
+        for (int start = 0; start < requests.size(); start += batchChunkSize) {
+            int chunkStart = start;
+            int chunkEnd = Math.min(start + batchChunkSize, requests.size());
+            try {
+                transactionTemplate.executeWithoutResult(
+                        status -> createChunk(requests, chunkStart, chunkEnd, results));
+            } catch (RuntimeException ex) {
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    results[i] = createOne(transactionTemplate, requests.get(i), i);
+                }
+            }
+        }
+        
+        int created = 0;
+        for (BillBatchResponse.BillResult result : results) {
+            if (result.getBill() != null) {
+                created++;
+            }
+        }
+        return new BillBatchResponse(created, results.length - created, Arrays.asList(results));
+    }
+    
+    private void createChunk(List<BillRequest> requests, int start, int end,
+                             BillBatchResponse.BillResult[] results) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Map<String, Integer>> requestedQuantities = new ArrayList<>(end - start);
+        Set<String> barcodes = new HashSet<>();
+        for (int i = start; i < end; i++) {
+            Map<String, Integer> quantities = requestedQuantities(requests.get(i));
+            requestedQuantities.add(quantities);
+            barcodes.addAll(quantities.keySet());
+        }
+        Map<String, Product> products = productCache.getAll(barcodes, productRepository::findAllByBarcodeIn);
+        
+        // Bills with unknown products fail on their own; the rest add up their stock per product
+        List<Bill> bills = new ArrayList<>(end - start);
+        List<Integer> billIndexes = new ArrayList<>(end - start);
+        Map<Long, Integer> deductions = new TreeMap<>();
+        for (int i = start; i < end; i++) {
+            Bill bill = new Bill();
+            bill.setBillNumber(billNumberGenerator.next());
+            try {
+                addItems(bill, requestedQuantities.get(i - start), products);
+            } catch (ResourceNotFoundException ex) {
+                results[i] = BillBatchResponse.BillResult.failed(i, ex.getMessage());
+                continue;
+            }
+            bill.calculateTotals(requests.get(i).getTaxRate(), requests.get(i).getDiscount());
+            bill.getItems().forEach(item -> deductions.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+            bills.add(bill);
+            billIndexes.add(i);
+        }
+        if (bills.isEmpty()) {
+            return;
+        }
+        
+        // One guarded update per product, in id order and in one batch like createBill
+        Map<Long, Product> productsById = products.values().stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        TreeMap<Long, Integer> changes = new TreeMap<>();
+        deductions.forEach((id, quantity) -> changes.put(id, -quantity));
+        List<Long> refused = productRepository.adjustQuantities(changes);
+        if (!refused.isEmpty()) {
+            throw stockNotDeducted(productsById.get(refused.get(0)), deductions.get(refused.get(0)));
+        }
+        Map<Long, Integer> newStock = productRepository.findStockQuantities(deductions.keySet()).stream()
+                .collect(Collectors.toMap(ProductRepository.StockQuantity::getId,
+                        ProductRepository.StockQuantity::getQuantity));
+        
+        // Walk each product's stock down bill by bill, so the movements read as if the bills
+        // had been created one at a time
+        Map<Long, Integer> stock = new HashMap<>();
+        deductions.forEach((id, quantity) -> stock.put(id, newStock.get(id) + quantity));
+        List<StockMovement> movements = new ArrayList<>();
+        for (Bill bill : bills) {
+            for (BillItem item : bill.getItems()) {
+                int previous = stock.get(item.getProductId());
+                int current = previous - item.getQuantity();
+                stock.put(item.getProductId(), current);
+                StockMovement movement = createStockMovement(products.get(item.getBarcode()), item.getQuantity(),
+                        previous, current);
+                movement.setBillNumber(bill.getBillNumber());
+                movements.add(movement);
+            }
+        }
+        
+        billRepository.saveAll(bills);
+        stockMovementJournal.record(movements);
+        
+        deductions.forEach((id, quantity) -> {
+            Product product = productsById.get(id);
+            Product updated = product.copyWithQuantity(newStock.get(id));
+            updated.setUpdatedAt(now);
+            eventPublisher.publishEvent(
+                    new ProductChangedEvent(product.copyWithQuantity(newStock.get(id) + quantity), updated));
+        });
+        for (int i = 0; i < bills.size(); i++) {
+            Bill bill = bills.get(i);
+            eventPublisher.publishEvent(new BillCreatedEvent(bill.getId(), bill.getBillNumber(),
+                    bill.getCreatedAt(), bill.getTotal(), bill.getTax(), bill.getDiscount()));
+            results[billIndexes.get(i)] = BillBatchResponse.BillResult.created(billIndexes.get(i),
+                    convertToResponse(bill));
+        }
+    }
+    
+    private BillBatchResponse.BillResult createOne(TransactionTemplate transactionTemplate, BillRequest request,
+                                                   int index) {
+        try {
+            BillResponse bill = transactionTemplate.execute(status -> createBill(request));
+            return BillBatchResponse.BillResult.created(index, bill);
+        } catch (ResourceNotFoundException | InsufficientStockException ex) {
+            return BillBatchResponse.BillResult.failed(index, ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.warn("Bill {} of a batch failed", index, ex);
+            return BillBatchResponse.BillResult.failed(index, "An unexpected error occurred: " + ex.getMessage());
+        }
     }
     
     public BillResponse getBillById(Long id) {
@@ -86,10 +288,38 @@ public class BillingService {
         return convertToResponse(bill);
     }
     
-    public List<BillResponse> getAllBills() {
-        return billRepository.findRecentBills().stream()
+    @Transactional(readOnly = true)
+    public BillPage getBills(String cursor, Integer size) {
+        int pageSize = Math.min(Math.max(size != null ? size : defaultPageSize, 1), maxPageSize);
+        // Fetch one extra id to find out whether another page follows
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        
+        List<Long> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = billRepository.findRecentBillIds(limit);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            ids = billRepository.findBillIdsBefore(position.getCreatedAt(), position.getId(), limit);
+        }
+        boolean hasMore = ids.size() > pageSize;
+        if (hasMore) {
+            ids = ids.subList(0, pageSize);
+        }
+        if (ids.isEmpty()) {
+            return new BillPage(List.of(), null);
+        }
+        
+        // Load the page's bills together with their items in one query, then restore key order
+        Map<Long, Bill> bills = billRepository.findAllWithItemsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Bill::getId, Function.identity()));
+        List<BillResponse> responses = ids.stream()
+                .map(bills::get)
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
+        
+        BillResponse last = responses.get(responses.size() - 1);
+        String nextCursor = hasMore ? new PageCursor(last.getCreatedAt(), last.getId()).encode() : null;
+        return new BillPage(responses, nextCursor);
     }
     
     public List<BillResponse> getBillsByDateRange(LocalDateTime start, LocalDateTime end) {
@@ -98,7 +328,103 @@ public class BillingService {
                 .collect(Collectors.toList());
     }
     
-    private BillResponse convertToResponse(Bill bill) {
+    /**
+     * Streams every bill created in the range to {@code out}, one NDJSON object per bill or
+     * one CSV row per bill item. Rows are read through a forward-only cursor and detached
+     * once written, so memory use does not grow with the size of the export.
+     */
+    // Longer than the default timeout, which is kept short for product writes
+    @Transactional(readOnly = true, timeoutString = "${billing.export.transaction-timeout-seconds:1800}")
+    public void exportBills(LocalDateTime start, LocalDateTime end, ExportFormat format, OutputStream out) 
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        
+        // Items arrive grouped by bill, so each bill is complete once the next one starts
+        Bill current = null;
+        List<BillItem> currentItems = new ArrayList<>();
+        try (Stream<BillItem> items = billRepository.streamItemsByCreatedAtBetween(start, end)) {
+            Iterator<BillItem> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                BillItem item = iterator.next();
+                if (current != null && !current.getId().equals(item.getBill().getId())) {
+                    writeBill(writer, format, current, currentItems);
+                    currentItems.clear();
+                }
+                current = item.getBill();
+                currentItems.add(item);
+            }
+        }
+        if (current != null) {
+            writeBill(writer, format, current, currentItems);
+        }
+        writer.flush();
+    }
+    
+    private void writeBill(Writer writer, ExportFormat format, Bill bill, List<BillItem> items) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(convertToResponse(bill, items)));
+            writer.write('\n');
+        } else {
+            for (BillItem item : items) {
+                writer.write(String.join(",",
+                        csvField(bill.getBillNumber()), csvField(bill.getCreatedAt()),
+                        csvField(item.getProductId()), csvField(item.getBarcode()), csvField(item.getProductName()),
+                        csvField(item.getPrice()), csvField(item.getQuantity()), csvField(item.getSubtotal()),
+                        csvField(bill.getSubtotal()), csvField(bill.getTax()), csvField(bill.getDiscount()),
+                        csvField(bill.getTotal())));
+                writer.write('\n');
+            }
+        }
+        items.forEach(entityManager::detach);
+        entityManager.detach(bill);
+    }
+    
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+    
+    // Merges repeated barcodes into a single line
+    private static Map<String, Integer> requestedQuantities(BillRequest request) {
+        Map<String, Integer> requestedQuantities = new LinkedHashMap<>();
+        for (BillRequest.BillItemDTO itemDTO : request.getItems()) {
+            requestedQuantities.merge(itemDTO.getBarcode(), itemDTO.getQuantity(), Integer::sum);
+        }
+        return requestedQuantities;
+    }
+    
+    private static void addItems(Bill bill, Map<String, Integer> requestedQuantities, Map<String, Product> products) {
+        for (Map.Entry<String, Integer> line : requestedQuantities.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with barcode: " + line.getKey());
+            }
+            
+            BillItem billItem = new BillItem();
+            billItem.setProductId(product.getId());
+            billItem.setProductName(product.getName());
+            billItem.setBarcode(product.getBarcode());
+            billItem.setPrice(product.getPrice());
+            billItem.setQuantity(line.getValue());
+            
+            bill.addItem(billItem);
+        }
+    }
+    
+    BillResponse convertToResponse(Bill bill) {
+        return convertToResponse(bill, bill.getItems());
+    }
+    
+    private BillResponse convertToResponse(Bill bill, List<BillItem> billItems) {
         BillResponse response = new BillResponse();
         response.setId(bill.getId());
         response.setBillNumber(bill.getBillNumber());
@@ -109,7 +435,7 @@ public class BillingService {
         response.setCreatedAt(bill.getCreatedAt());
         
         List<BillResponse.BillItemResponse> items = new ArrayList<>();
-        for (BillItem item : bill.getItems()) {
+        for (BillItem item : billItems) {
             BillResponse.BillItemResponse itemResponse = new BillResponse.BillItemResponse();
             itemResponse.setProductId(item.getProductId());
             itemResponse.setProductName(item.getProductName());
@@ -124,8 +450,19 @@ public class BillingService {
         return response;
     }
     
-    private void logStockMovement(Product product, Integer quantity, Integer previousStock, 
-                                   Integer newStock, String billNumber) {
+    private RuntimeException stockNotDeducted(Product product, Integer requested) {
+        Integer available = productRepository.findQuantityById(product.getId()).orElse(null);
+        if (available == null) {
+            productCache.evict(product.getBarcode());
+            return new ResourceNotFoundException("Product not found with barcode: " + product.getBarcode());
+        }
+        return new InsufficientStockException(
+            "Insufficient stock for product: " + product.getName() + 
+            ". Available: " + available + ", Requested: " + requested);
+    }
+    
+    private StockMovement createStockMovement(Product product, Integer quantity, Integer previousStock, 
+                                              Integer newStock) {
         StockMovement movement = new StockMovement();
         movement.setProductId(product.getId());
         movement.setProductName(product.getName());
@@ -134,9 +471,7 @@ public class BillingService {
         movement.setQuantity(quantity);
         movement.setPreviousStock(previousStock);
         movement.setNewStock(newStock);
-        movement.setBillNumber(billNumber);
         movement.setNotes("Stock deducted via billing");
-        
-        stockMovementRepository.save(movement);
+        return movement;
     }
 }
@@ -0,0 +1,331 @@
+package com.supermarket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermarket.dto.CatalogImportError;
+import com.supermarket.dto.CatalogImportProgress;
+import com.supermarket.dto.ProductDTO;
+import com.supermarket.event.ProductChangedEvent;
+import com.supermarket.exception.InvalidRequestException;
+import com.supermarket.model.Product;
+import com.supermarket.model.StockMovement;
+import com.supermarket.repository.ProductRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a product catalog from CSV, upserting by barcode.
+ * <p>
+ * The file is read one row at a time. Valid rows are collected into chunks of
+ * {@code product.import.batch-size}, and each chunk is written in one transaction: one
+ * query finds the chunk's existing products, then new products, changed products and
+ * their {@code INITIAL}, {@code RESTOCK} or {@code ADJUSTMENT} stock movements are written
+ * in JDBC batches. If a chunk fails to commit, its rows are retried one at a time so that
+ * only the offending rows fail. Progress after each chunk, every rejected row and a final
+ * summary are streamed back as NDJSON, so neither the file nor the report is held in memory.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final String NAME = "name";
+    private static final String CATEGORY = "category";
+    private static final String BARCODE = "barcode";
+    private static final String PRICE = "price";
+    private static final String QUANTITY = "quantity";
+    private static final String LOW_STOCK_THRESHOLD = "lowStockThreshold";
+    private static final List<String> REQUIRED_COLUMNS = List.of(NAME, CATEGORY, BARCODE, PRICE, QUANTITY);
+
+    private final ProductRepository productRepository;
+    private final StockMovementJournal stockMovementJournal;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public CatalogImportService(ProductRepository productRepository,
+                                StockMovementJournal stockMovementJournal,
+                                ApplicationEventPublisher eventPublisher, Validator validator,
+                                ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                @Value("${product.import.batch-size:500}") int batchSize) {
+        this.productRepository = productRepository;
+        this.stockMovementJournal = stockMovementJournal;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the CSV in {@code in}, which must start with a header row naming the columns
+     * name, category, barcode, price, quantity and optionally lowStockThreshold, in any
+     * order. Writes the NDJSON report to {@code out}.
+     */
+    public void importCsv(InputStream in, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CsvRowReader reader = new CsvRowReader(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        CatalogImportProgress progress = new CatalogImportProgress();
+        Map<String, Row> chunk = new LinkedHashMap<>();
+        try {
+            Map<String, Integer> columns = readHeader(reader.next());
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                progress.setRows(progress.getRows() + 1);
+                Row row;
+                String error;
+                try {
+                    row = new Row(reader.getLine(), toProduct(fields, columns));
+                    error = validate(row.product);
+                } catch (NumberFormatException ex) {
+                    row = new Row(reader.getLine(), null);
+                    error = ex.getMessage();
+                }
+                if (error != null) {
+                    fail(writer, progress, row.line, field(fields, columns, BARCODE), error);
+                    continue;
+                }
+                // A barcode repeated within a chunk would be inserted twice, so write what
+                // came before it first
+                if (chunk.containsKey(row.product.getBarcode()) || chunk.size() == batchSize) {
+                    writeChunk(writer, progress, chunk);
+                }
+                chunk.put(row.product.getBarcode(), row);
+            }
+        } catch (InvalidRequestException ex) {
+            // The file cannot be read any further; the rows before this one are still imported
+            write(writer, new CatalogImportError(reader.getLine(), null, ex.getMessage()));
+        }
+        writeChunk(writer, progress, chunk);
+        progress.setType("summary");
+        write(writer, progress);
+        writer.flush();
+    }
+
+    private static Map<String, Integer> readHeader(List<String> header) {
+        if (header == null) {
+            throw new InvalidRequestException("The file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream()
+                .filter(column -> !columns.containsKey(column.toLowerCase(Locale.ROOT)))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new InvalidRequestException("Missing column(s) " + String.join(", ", missing)
+                    + "; the header row must name name, category, barcode, price and quantity");
+        }
+        return columns;
+    }
+
+    private static ProductDTO toProduct(List<String> fields, Map<String, Integer> columns) {
+        ProductDTO product = new ProductDTO();
+        product.setName(field(fields, columns, NAME));
+        product.setCategory(field(fields, columns, CATEGORY));
+        product.setBarcode(field(fields, columns, BARCODE));
+        product.setPrice(parse(fields, columns, PRICE, Double::valueOf));
+        product.setQuantity(parse(fields, columns, QUANTITY, Integer::valueOf));
+        if (field(fields, columns, LOW_STOCK_THRESHOLD) != null) {
+            product.setLowStockThreshold(parse(fields, columns, LOW_STOCK_THRESHOLD, Integer::valueOf));
+        }
+        return product;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        if (index == null || index >= fields.size() || fields.get(index).isBlank()) {
+            return null;
+        }
+        return fields.get(index).trim();
+    }
+
+    private static <T> T parse(List<String> fields, Map<String, Integer> columns, String column,
+                               Function<String, T> parser) {
+        String value = field(fields, columns, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException ex) {
+            throw new NumberFormatException("Invalid " + column + " '" + value + "'");
+        }
+    }
+
+    private String validate(ProductDTO product) {
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void writeChunk(Writer writer, CatalogImportProgress progress, Map<String, Row> chunk)
+            throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Row> rows = new ArrayList<>(chunk.values());
+        chunk.clear();
+        try {
+            add(progress, transactionTemplate.execute(status -> upsert(rows)));
+        } catch (RuntimeException ex) {
+            for (Row row : rows) {
+                try {
+                    add(progress, transactionTemplate.execute(status -> upsert(List.of(row))));
+                } catch (RuntimeException rowEx) {
+                    fail(writer, progress, row.line, row.product.getBarcode(),
+                            "Could not save product: " + NestedExceptionUtils.getMostSpecificCause(rowEx).getMessage());
+                }
+            }
+        }
+        write(writer, progress);
+        writer.flush();
+    }
+
+    private Counts upsert(List<Row> rows) {
+        Map<String, Product> existing = productRepository.findAllByBarcodeIn(
+                        rows.stream().map(row -> row.product.getBarcode()).toList()).stream()
+                .collect(Collectors.toMap(Product::getBarcode, Function.identity()));
+
+        LocalDateTime now = productRepository.currentTimestamp();
+        Counts counts = new Counts();
+        List<Product> created = new ArrayList<>();
+        List<StockMovement> movements = new ArrayList<>();
+        List<ProductChangedEvent> events = new ArrayList<>();
+        for (Row row : rows) {
+            ProductDTO dto = row.product;
+            Product product = existing.get(dto.getBarcode());
+            if (product == null) {
+                product = new Product();
+                apply(product, dto);
+                product.setUpdatedAt(now);
+                created.add(product);
+                counts.created++;
+                continue;
+            }
+            if (!changes(product, dto)) {
+                counts.unchanged++;
+                continue;
+            }
+
+            Product previous = product.copy();
+            apply(product, dto);
+            product.setUpdatedAt(now);
+            counts.updated++;
+            events.add(new ProductChangedEvent(previous, product));
+            if (!previous.getQuantity().equals(product.getQuantity())) {
+                String movementType = product.getQuantity() > previous.getQuantity() ? "RESTOCK" : "ADJUSTMENT";
+                movements.add(stockMovement(product, movementType,
+                        Math.abs(product.getQuantity() - previous.getQuantity()), previous.getQuantity(),
+                        "Stock updated via catalog import"));
+            }
+        }
+
+        // Ids come from the pooled sequence on save, before the batched inserts run
+        productRepository.saveAll(created);
+        for (Product product : created) {
+            events.add(new ProductChangedEvent(null, product));
+            movements.add(stockMovement(product, "INITIAL", product.getQuantity(), 0,
+                    "Initial stock from catalog import"));
+        }
+        stockMovementJournal.record(movements);
+        events.forEach(eventPublisher::publishEvent);
+        return counts;
+    }
+
+    private static void apply(Product product, ProductDTO dto) {
+        product.setName(dto.getName());
+        product.setCategory(dto.getCategory());
+        product.setBarcode(dto.getBarcode());
+        product.setPrice(dto.getPrice());
+        product.setQuantity(dto.getQuantity());
+        product.setLowStockThreshold(dto.getLowStockThreshold());
+    }
+
+    private static boolean changes(Product product, ProductDTO dto) {
+        return !Objects.equals(product.getName(), dto.getName())
+                || !Objects.equals(product.getCategory(), dto.getCategory())
+                || !Objects.equals(product.getPrice(), dto.getPrice())
+                || !Objects.equals(product.getQuantity(), dto.getQuantity())
+                || !Objects.equals(product.getLowStockThreshold(), dto.getLowStockThreshold());
+    }
+
+    private static StockMovement stockMovement(Product product, String movementType, Integer quantity,
+                                               Integer previousStock, String notes) {
+        StockMovement movement = new StockMovement();
+        movement.setProductId(product.getId());
+        movement.setProductName(product.getName());
+        movement.setBarcode(product.getBarcode());
+        movement.setMovementType(movementType);
+        movement.setQuantity(quantity);
+        movement.setPreviousStock(previousStock);
+        movement.setNewStock(product.getQuantity());
+        movement.setNotes(notes);
+        return movement;
+    }
+
+    private void fail(Writer writer, CatalogImportProgress progress, int line, String barcode, String message)
+            throws IOException {
+        progress.setFailed(progress.getFailed() + 1);
+        write(writer, new CatalogImportError(line, barcode, message));
+    }
+
+    private static void add(CatalogImportProgress progress, Counts counts) {
+        progress.setCreated(progress.getCreated() + counts.created);
+        progress.setUpdated(progress.getUpdated() + counts.updated);
+        progress.setUnchanged(progress.getUnchanged() + counts.unchanged);
+    }
+
+    private void write(Writer writer, Object line) throws IOException {
+        writer.write(objectMapper.writeValueAsString(line));
+        writer.write('\n');
+    }
+
+    private static final class Row {
+        private final int line;
+        private final ProductDTO product;
+
+        private Row(int line, ProductDTO product) {
+            this.line = line;
+            this.product = product;
+        }
+    }
+
+    private static final class Counts {
+        private int created;
+        private int updated;
+        private int unchanged;
+    }
+}
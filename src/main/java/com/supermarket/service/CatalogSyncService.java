@@ -0,0 +1,144 @@
+package com.supermarket.service;
+
+import com.supermarket.dto.PageCursor;
+import com.supermarket.dto.ProductChanges;
+import com.supermarket.dto.ProductView;
+import com.supermarket.exception.ResyncRequiredException;
+import com.supermarket.model.ProductTombstone;
+import com.supermarket.repository.ProductRepository;
+import com.supermarket.repository.ProductTombstoneRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Change feed for tills that keep a local copy of the catalog.
+ * <p>
+ * Products are read in {@code (updatedAt, id)} order from the position in {@code since},
+ * together with tombstones of deleted products in {@code (deletedAt, productId)} order.
+ * Both times come from the database's clock, so instances with different clocks agree on
+ * the order. A transaction that stamped a time may still be committing, so changes from
+ * the last {@code product.changes.settle-ms} are held back; that only works because every
+ * transaction is cut off by {@code spring.transaction.default-timeout}, which must be
+ * shorter and is checked at startup. The position never moves past a change that was not
+ * returned, but does move up to the settled time when nothing is left before it.
+ * Tombstones are kept for {@code product.changes.tombstone-retention-days}; a client whose
+ * position is older than that is told to download the full catalog again.
+ */
+@Slf4j
+@Service
+public class CatalogSyncService {
+
+    private static final PageCursor START = new PageCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+    private static final Comparator<PageCursor> CHANGE_ORDER =
+            Comparator.comparing(PageCursor::getCreatedAt).thenComparing(PageCursor::getId);
+
+    private final ProductRepository productRepository;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final int defaultSize;
+    private final int maxSize;
+    private final long settleMillis;
+    private final int tombstoneRetentionDays;
+
+    public CatalogSyncService(ProductRepository productRepository,
+                              ProductTombstoneRepository productTombstoneRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${product.changes.default-size:500}") int defaultSize,
+                              @Value("${product.changes.max-size:5000}") int maxSize,
+                              @Value("${product.changes.settle-ms:15000}") long settleMillis,
+                              @Value("${product.changes.tombstone-retention-days:30}") int tombstoneRetentionDays) {
+        this.productRepository = productRepository;
+        this.productTombstoneRepository = productTombstoneRepository;
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+        this.settleMillis = settleMillis;
+        this.tombstoneRetentionDays = tombstoneRetentionDays;
+
+        int transactionTimeout = transactionManager instanceof AbstractPlatformTransactionManager manager
+                ? manager.getDefaultTimeout() : TransactionDefinition.TIMEOUT_DEFAULT;
+        if (transactionTimeout <= 0 || transactionTimeout * 1000L >= settleMillis) {
+            throw new IllegalStateException("product.changes.settle-ms (" + settleMillis + ") must be longer than "
+                    + "spring.transaction.default-timeout (" + transactionTimeout + " s), or changes from "
+                    + "transactions still committing would be skipped");
+        }
+    }
+
+    /**
+     * Changes after {@code since}, or the whole catalog when it is null. Deletions are
+     * only reported from a position, since a full download has nothing to remove.
+     */
+    @Transactional(readOnly = true)
+    public ProductChanges getChanges(String since, Integer size) {
+        int pageSize = Math.min(Math.max(size != null ? size : defaultSize, 1), maxSize);
+        // Fetch one extra change to find out whether more follow
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        LocalDateTime now = productRepository.currentTimestamp();
+        LocalDateTime until = now.minusNanos(settleMillis * 1_000_000);
+
+        boolean full = since == null || since.isBlank();
+        PageCursor position = full ? START : PageCursor.decode(since);
+        if (!full && position.getCreatedAt().isBefore(now.minusDays(tombstoneRetentionDays))) {
+            throw new ResyncRequiredException("Changes since " + position.getCreatedAt()
+                    + " are no longer available; download the full catalog and sync from there");
+        }
+
+        List<ProductView> products = productRepository.findViewsChangedAfter(
+                position.getCreatedAt(), position.getId(), until, limit);
+        List<ProductTombstone> deleted = full ? List.of() : productTombstoneRepository.findDeletedAfter(
+                position.getCreatedAt(), position.getId(), until, limit);
+
+        // Merge both lists in change order and keep the first pageSize changes
+        List<ProductView> pageProducts = new ArrayList<>();
+        List<ProductTombstone> pageDeleted = new ArrayList<>();
+        PageCursor last = position;
+        int p = 0;
+        int d = 0;
+        while (pageProducts.size() + pageDeleted.size() < pageSize && (p < products.size() || d < deleted.size())) {
+            PageCursor nextProduct = p < products.size() ? positionOf(products.get(p)) : null;
+            PageCursor nextDeleted = d < deleted.size() ? positionOf(deleted.get(d)) : null;
+            if (nextDeleted == null || (nextProduct != null && CHANGE_ORDER.compare(nextProduct, nextDeleted) < 0)) {
+                pageProducts.add(products.get(p++));
+                last = nextProduct;
+            } else {
+                pageDeleted.add(deleted.get(d++));
+                last = nextDeleted;
+            }
+        }
+        boolean hasMore = p < products.size() || d < deleted.size();
+        // Everything settled after the position has been returned, so an idle client keeps
+        // moving forward instead of aging past the tombstone retention
+        if (!hasMore && until.isAfter(last.getCreatedAt())) {
+            last = new PageCursor(until, 0L);
+        }
+        return new ProductChanges(pageProducts, pageDeleted, last == START ? null : last.encode(), hasMore);
+    }
+
+    @Transactional
+    @Scheduled(cron = "${product.changes.tombstone-purge-cron:0 45 0 * * *}")
+    public void purgeTombstones() {
+        int purged = productTombstoneRepository.deleteDeletedBefore(
+                productRepository.currentTimestamp().minusDays(tombstoneRetentionDays));
+        if (purged > 0) {
+            log.info("Purged {} product tombstone(s) older than {} days", purged, tombstoneRetentionDays);
+        }
+    }
+
+    private static PageCursor positionOf(ProductView product) {
+        return new PageCursor(product.getUpdatedAt(), product.getId());
+    }
+
+    private static PageCursor positionOf(ProductTombstone tombstone) {
+        return new PageCursor(tombstone.getDeletedAt(), tombstone.getProductId());
+    }
+}
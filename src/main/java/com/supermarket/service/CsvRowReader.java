@@ -0,0 +1,121 @@
+package com.supermarket.service;
+
+import com.supermarket.exception.InvalidRequestException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: comma separated, fields optionally quoted,
+ * {@code ""} for a quote inside a quoted field, and line breaks allowed inside quotes.
+ * Blank lines are skipped. Only the current record is held in memory, and a record
+ * longer than {@link #MAX_RECORD_LENGTH} characters is rejected, so memory use does not
+ * depend on the size of the input.
+ */
+final class CsvRowReader {
+
+    static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int peeked = -2;
+    private int line = 1;
+    private int recordLine;
+
+    CsvRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Returns the next record's fields, or {@code null} at the end of the input.
+     */
+    List<String> next() throws IOException {
+        int c;
+        while ((c = read()) == '\r' || c == '\n') {
+            consumeLineBreak(c);
+        }
+        if (c == -1) {
+            return null;
+        }
+        if (c == '\uFEFF' && line == 1) {
+            return next();
+        }
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        int length = 0;
+        boolean quoted = false;
+        field.setLength(0);
+        while (true) {
+            if (++length > MAX_RECORD_LENGTH) {
+                throw new InvalidRequestException("Line " + recordLine + " is longer than "
+                        + MAX_RECORD_LENGTH + " characters");
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new InvalidRequestException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                fields.add(field.toString());
+                consumeLineBreak(c);
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * The line number on which the record last returned by {@link #next()} started.
+     */
+    int getLine() {
+        return recordLine;
+    }
+
+    private void consumeLineBreak(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') {
+            read();
+        }
+        if (c != -1) {
+            line++;
+        }
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+}
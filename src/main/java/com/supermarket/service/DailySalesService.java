@@ -0,0 +1,145 @@
+package com.supermarket.service;
+
+import com.supermarket.dto.SalesTotals;
+import com.supermarket.event.BillCreatedEvent;
+import com.supermarket.model.DailySales;
+import com.supermarket.repository.BillRepository;
+import com.supermarket.repository.DailySalesRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maintains the {@code daily_sales} rollup. Committed bills are summed per day in memory
+ * and flushed every {@code reports.rollup.flush-interval-ms} by a single writer, so
+ * checkouts neither wait on the hot per-day row nor need a second connection. Past
+ * days are then re-derived from {@code bills} ("sealed") by a nightly job, which also
+ * repairs any increment that was lost, e.g. in a crash before a flush.
+ */
+@Slf4j
+@Service
+public class DailySalesService {
+
+    private final DailySalesRepository dailySalesRepository;
+    private final BillRepository billRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private Map<LocalDate, SalesTotals> pending = new HashMap<>();
+
+    public DailySalesService(DailySalesRepository dailySalesRepository, BillRepository billRepository,
+                             EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.dailySalesRepository = dailySalesRepository;
+        this.billRepository = billRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener
+    public void onBillCreated(BillCreatedEvent event) {
+        SalesTotals bill = new SalesTotals(event.getTotal(), event.getTax(), event.getDiscount(), 1L);
+        synchronized (this) {
+            pending.merge(event.getCreatedAt().toLocalDate(), bill, SalesTotals::plus);
+        }
+    }
+    
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${reports.rollup.flush-interval-ms:1000}")
+    public void flush() {
+        Map<LocalDate, SalesTotals> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        batch.forEach((date, totals) -> {
+            try {
+                if (!addSales(date, totals)) {
+                    createDay(date);
+                    addSales(date, totals);
+                }
+            } catch (DataAccessException ex) {
+                log.warn("Could not add {} bill(s) to the sales rollup for {}; retrying on the next flush",
+                        totals.getTransactionCount(), date, ex);
+                synchronized (this) {
+                    pending.merge(date, totals, SalesTotals::plus);
+                }
+            }
+        });
+    }
+
+    public SalesTotals getTotalsBetween(LocalDate startDate, LocalDate endDate) {
+        return dailySalesRepository.getTotalsBetween(startDate, endDate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${reports.rollup.seal-cron:0 5 0 * * *}")
+    public void sealPastDays() {
+        LocalDate today = LocalDate.now();
+        // Resume from the last day already rolled up; it may only hold live increments
+        LocalDate from = dailySalesRepository.findLatestSalesDateBefore(today)
+                .or(() -> billRepository.findEarliestCreatedAt().map(LocalDateTime::toLocalDate))
+                .orElse(null);
+        if (from != null && from.isBefore(today)) {
+            rebuild(from, today.minusDays(1));
+        }
+    }
+
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        int days = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            rebuildDay(date);
+            days++;
+        }
+        log.info("Rebuilt sales rollup for {} day(s) from {} to {}", days, startDate, endDate);
+        return days;
+    }
+
+    private void rebuildDay(LocalDate date) {
+        transactionTemplate.executeWithoutResult(status -> {
+            SalesTotals totals = billRepository.getTotalsBetween(
+                    LocalDateTime.of(date, LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
+            if (totals.getTransactionCount() == 0) {
+                dailySalesRepository.findById(date).ifPresent(dailySalesRepository::delete);
+            } else {
+                dailySalesRepository.save(new DailySales(date, totals.getRevenue(), totals.getTax(),
+                        totals.getDiscount(), totals.getTransactionCount()));
+            }
+        });
+    }
+
+    private boolean addSales(LocalDate date, SalesTotals totals) {
+        Integer updated = transactionTemplate.execute(status -> dailySalesRepository.addSales(date,
+                totals.getRevenue(), totals.getTax(), totals.getDiscount(), totals.getTransactionCount()));
+        return updated != null && updated > 0;
+    }
+
+    private void createDay(LocalDate date) {
+        try {
+            // persist rather than save: a merge would reset a row another instance just created
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.persist(new DailySales(date, 0.0, 0.0, 0.0, 0L));
+                entityManager.flush();
+            });
+        } catch (PersistenceException ex) {
+            // Another instance created the row first
+        }
+    }
+}
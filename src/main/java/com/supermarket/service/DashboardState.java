@@ -0,0 +1,159 @@
+package com.supermarket.service;
+
+import com.supermarket.dto.DashboardStats;
+import com.supermarket.dto.SalesTotals;
+import com.supermarket.event.BillCreatedEvent;
+import com.supermarket.event.ProductChangedEvent;
+import com.supermarket.model.Product;
+import com.supermarket.model.StockLevel;
+import com.supermarket.repository.BillRepository;
+import com.supermarket.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory dashboard figures, kept current from committed billing and product events
+ * so that reading the dashboard never touches the database.
+ * <p>
+ * Sales counters are tied to the day / month they count and are replaced when a newer
+ * period starts. Everything is periodically reconciled from the database, which also
+ * picks up changes made by other instances.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DashboardState {
+
+    private final ProductRepository productRepository;
+    private final BillRepository billRepository;
+
+    private final AtomicReference<SalesCounters> today = new AtomicReference<>(new SalesCounters(LocalDate.MIN));
+    private final AtomicReference<SalesCounters> month = new AtomicReference<>(new SalesCounters(LocalDate.MIN));
+    private final LongAdder totalProducts = new LongAdder();
+    private final LongAdder lowStock = new LongAdder();
+    private final LongAdder outOfStock = new LongAdder();
+
+    public DashboardStats getStats() {
+        LocalDate date = LocalDate.now();
+        SalesCounters day = orEmpty(current(today, date), date);
+        SalesCounters monthToDate = orEmpty(current(month, date.withDayOfMonth(1)), date);
+
+        DashboardStats stats = new DashboardStats();
+        stats.setTotalProducts(totalProducts.sum());
+        stats.setLowStockCount(lowStock.sum());
+        stats.setOutOfStockCount(outOfStock.sum());
+        stats.setTodaysSales(day.revenue.sum());
+        stats.setTodaysTransactions(day.transactions.sum());
+        stats.setMonthlySales(monthToDate.revenue.sum());
+        stats.setMonthlyTransactions(monthToDate.transactions.sum());
+        return stats;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBillCreated(BillCreatedEvent event) {
+        LocalDate date = event.getCreatedAt().toLocalDate();
+        record(current(today, date), event);
+        record(current(month, date.withDayOfMonth(1)), event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getPrevious() == null) {
+            totalProducts.increment();
+        } else {
+            count(event.getPrevious(), -1);
+        }
+        if (event.getCurrent() == null) {
+            totalProducts.decrement();
+        } else {
+            count(event.getCurrent(), 1);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${dashboard.reconcile-interval-ms:300000}",
+               initialDelayString = "${dashboard.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        LocalDate date = LocalDate.now();
+        LocalDate monthStart = date.withDayOfMonth(1);
+        LocalDateTime endOfToday = LocalDateTime.of(date, LocalTime.MAX);
+
+        reset(totalProducts, productRepository.count());
+        reset(lowStock, productRepository.countByStockLevel(StockLevel.LOW));
+        reset(outOfStock, productRepository.countByStockLevel(StockLevel.OUT));
+        today.set(SalesCounters.of(date,
+                billRepository.getTotalsBetween(LocalDateTime.of(date, LocalTime.MIN), endOfToday)));
+        month.set(SalesCounters.of(monthStart,
+                billRepository.getTotalsBetween(LocalDateTime.of(monthStart, LocalTime.MIN), endOfToday)));
+        log.debug("Dashboard counters reconciled from the database");
+    }
+
+    private void count(Product product, int delta) {
+        switch (StockLevel.of(product.getQuantity(), product.getLowStockThreshold())) {
+            case OUT -> outOfStock.add(delta);
+            case LOW -> lowStock.add(delta);
+            default -> { }
+        }
+    }
+
+    private static void record(SalesCounters counters, BillCreatedEvent event) {
+        // null when the bill belongs to a period that has already rolled over
+        if (counters != null) {
+            counters.revenue.add(event.getTotal());
+            counters.transactions.increment();
+        }
+    }
+
+    private static SalesCounters current(AtomicReference<SalesCounters> ref, LocalDate period) {
+        while (true) {
+            SalesCounters counters = ref.get();
+            if (counters.period.equals(period)) {
+                return counters;
+            }
+            if (counters.period.isAfter(period)) {
+                return null;
+            }
+            SalesCounters next = new SalesCounters(period);
+            if (ref.compareAndSet(counters, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static SalesCounters orEmpty(SalesCounters counters, LocalDate period) {
+        return counters != null ? counters : new SalesCounters(period);
+    }
+
+    private static void reset(LongAdder adder, long value) {
+        adder.reset();
+        adder.add(value);
+    }
+
+    private static final class SalesCounters {
+        private final LocalDate period;
+        private final DoubleAdder revenue = new DoubleAdder();
+        private final LongAdder transactions = new LongAdder();
+
+        private SalesCounters(LocalDate period) {
+            this.period = period;
+        }
+
+        private static SalesCounters of(LocalDate period, SalesTotals totals) {
+            SalesCounters counters = new SalesCounters(period);
+            counters.revenue.add(totals.getRevenue());
+            counters.transactions.add(totals.getTransactionCount());
+            return counters;
+        }
+    }
+}
@@ -1,16 +1,48 @@
 package com.supermarket.service;
 
+import com.supermarket.cache.ProductCache;
+import com.supermarket.dto.CacheStats;
+import com.supermarket.dto.CategoryFacet;
+import com.supermarket.dto.PageCursor;
 import com.supermarket.dto.ProductDTO;
+import com.supermarket.dto.ProductView;
+import com.supermarket.dto.StockAdjustmentRequest;
+import com.supermarket.dto.StockMovementPage;
+import com.supermarket.event.ProductChangedEvent;
 import com.supermarket.exception.DuplicateBarcodeException;
+import com.supermarket.exception.InsufficientStockException;
+import com.supermarket.exception.InvalidRequestException;
 import com.supermarket.exception.ResourceNotFoundException;
 import com.supermarket.model.Product;
+import com.supermarket.model.ProductTombstone;
+import com.supermarket.model.StockLevel;
 import com.supermarket.model.StockMovement;
 import com.supermarket.repository.ProductRepository;
+import com.supermarket.repository.ProductTombstoneRepository;
 import com.supermarket.repository.StockMovementRepository;
+import com.supermarket.search.CategoryFacetIndex;
+import com.supermarket.search.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -18,39 +50,119 @@ public class ProductService {
     
     private final ProductRepository productRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final StockMovementJournal stockMovementJournal;
+    private final ProductCache productCache;
+    private final ProductSearchIndex searchIndex;
+    private final CategoryFacetIndex facetIndex;
+    private final ApplicationEventPublisher eventPublisher;
     
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+    // Ids bound per IN list, well inside every driver's parameter limit
+    private static final int VIEWS_PER_QUERY = 1000;
+    
+    @Value("${product.page.default-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${product.page.max-size:500}")
+    private int maxPageSize;
+    
+    @Value("${product.search.default-limit:50}")
+    private int defaultSearchLimit;
+    
+    @Value("${product.search.max-limit:500}")
+    private int maxSearchLimit;
+    
+    @Transactional(readOnly = true)
+    public List<ProductView> getAllProducts() {
+        return productRepository.findAllViews();
     }
     
-    public Product getProductById(Long id) {
-        return productRepository.findById(id)
+    @Transactional(readOnly = true)
+    public ProductView getProductById(Long id) {
+        return productRepository.findViewById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
     }
     
-    public Product getProductByBarcode(String barcode) {
-        return productRepository.findByBarcode(barcode)
+    // No transaction: usually answered from the cache, without a connection
+    public ProductView getProductByBarcode(String barcode) {
+        return productCache.getOrLoad(barcode, productRepository::findByBarcode)
+                .map(ProductView::of)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with barcode: " + barcode));
     }
     
-    public List<Product> searchProducts(String keyword) {
-        return productRepository.findByNameContainingIgnoreCase(keyword);
+    @Transactional(readOnly = true)
+    public List<ProductView> searchProducts(String keyword, Integer limit) {
+        int maxResults = Math.min(Math.max(limit != null ? limit : defaultSearchLimit, 1), maxSearchLimit);
+        if (!searchIndex.isReady()) {
+            return productRepository.findViewsByNameContaining(keyword, PageRequest.of(0, maxResults));
+        }
+        
+        List<Long> ids = searchIndex.search(keyword, maxResults);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // Keep the index's ranking; a product deleted since the lookup is simply dropped
+        Map<Long, ProductView> products = productRepository.findViewsByIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductView::getId, Function.identity()));
+        return ids.stream().map(products::get).filter(Objects::nonNull).toList();
     }
     
-    public List<Product> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category);
+    @Transactional(readOnly = true)
+    public List<ProductView> getProductsByCategory(String category, StockLevel stockLevel) {
+        if (!facetIndex.isReady()) {
+            return productRepository.findViewsByCategory(category).stream()
+                    .filter(p -> stockLevel == null || p.getStockLevel() == stockLevel)
+                    .toList();
+        }
+        // The index hands out ids in id order, so the chunks come back in id order too
+        List<Long> ids = facetIndex.getProductIds(category, stockLevel);
+        List<ProductView> products = new ArrayList<>(ids.size());
+        for (int start = 0; start < ids.size(); start += VIEWS_PER_QUERY) {
+            List<Long> chunk = ids.subList(start, Math.min(start + VIEWS_PER_QUERY, ids.size()));
+            products.addAll(productRepository.findViewsByIdIn(chunk));
+        }
+        return products;
     }
     
-    public List<String> getAllCategories() {
-        return productRepository.findAllCategories();
+    public List<String> getAllCategories(StockLevel stockLevel) {
+        if (facetIndex.isReady()) {
+            return facetIndex.getCategories(stockLevel);
+        }
+        if (stockLevel == null) {
+            return productRepository.findAllCategories();
+        }
+        return getCategoryFacets(stockLevel).stream().map(CategoryFacet::getCategory).toList();
+    }
+    
+    public List<CategoryFacet> getCategoryFacets(StockLevel stockLevel) {
+        if (facetIndex.isReady()) {
+            return facetIndex.getFacets(stockLevel);
+        }
+        // Only while the index is still loading at startup
+        Map<String, int[]> counts = new TreeMap<>();
+        for (ProductRepository.CategoryStock product : productRepository.findAllCategoryStock()) {
+            StockLevel level = StockLevel.of(product.getQuantity(), product.getLowStockThreshold());
+            counts.computeIfAbsent(product.getCategory(), key -> new int[3])[level.ordinal()]++;
+        }
+        return counts.entrySet().stream()
+                .filter(e -> stockLevel == null || e.getValue()[stockLevel.ordinal()] > 0)
+                .map(e -> new CategoryFacet(e.getKey(), e.getValue()[0] + e.getValue()[1] + e.getValue()[2],
+                        e.getValue()[0] + e.getValue()[1], e.getValue()[1], e.getValue()[2]))
+                .toList();
     }
     
-    public List<Product> getLowStockProducts() {
-        return productRepository.findLowStockProducts();
+    @Transactional(readOnly = true)
+    public Page<ProductView> getProductsByStockLevel(StockLevel stockLevel, Integer page, Integer size) {
+        int pageSize = Math.min(Math.max(size != null ? size : defaultPageSize, 1), maxPageSize);
+        Pageable pageable = PageRequest.of(Math.max(page != null ? page : 0, 0), pageSize, Sort.by("id"));
+        return productRepository.findViewsByStockLevel(stockLevel, pageable);
     }
     
-    public List<Product> getOutOfStockProducts() {
-        return productRepository.findOutOfStockProducts();
+    @Transactional(readOnly = true)
+    public long countProductsByStockLevel(StockLevel stockLevel) {
+        return productRepository.countByStockLevel(stockLevel);
     }
     
     @Transactional
@@ -67,8 +179,10 @@ public class ProductService {
         product.setPrice(productDTO.getPrice());
         product.setQuantity(productDTO.getQuantity());
         product.setLowStockThreshold(productDTO.getLowStockThreshold());
+        product.setUpdatedAt(productRepository.currentTimestamp());
         
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(null, savedProduct));
         
         // Log stock movement
         logStockMovement(savedProduct, "INITIAL", savedProduct.getQuantity(), 0, savedProduct.getQuantity(), 
@@ -79,7 +193,7 @@ public class ProductService {
     
     @Transactional
     public Product updateProduct(Long id, ProductDTO productDTO) {
-        Product product = getProductById(id);
+        Product product = findProduct(id);
         
         // Check for duplicate barcode (excluding current product)
         if (!product.getBarcode().equals(productDTO.getBarcode()) && 
@@ -87,6 +201,7 @@ public class ProductService {
             throw new DuplicateBarcodeException("Product with barcode " + productDTO.getBarcode() + " already exists");
         }
         
+        Product previous = product.copy();
         Integer previousQuantity = product.getQuantity();
         
         product.setName(productDTO.getName());
@@ -95,8 +210,10 @@ public class ProductService {
         product.setPrice(productDTO.getPrice());
         product.setQuantity(productDTO.getQuantity());
         product.setLowStockThreshold(productDTO.getLowStockThreshold());
+        product.setUpdatedAt(productRepository.currentTimestamp());
         
         Product updatedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(previous, updatedProduct));
         
         // Log stock movement if quantity changed
         if (!previousQuantity.equals(productDTO.getQuantity())) {
@@ -111,22 +228,28 @@ public class ProductService {
     
     @Transactional
     public void deleteProduct(Long id) {
-        Product product = getProductById(id);
+        Product product = findProduct(id);
         productRepository.delete(product);
+        productTombstoneRepository.save(
+                new ProductTombstone(id, product.getBarcode(), productRepository.currentTimestamp()));
+        eventPublisher.publishEvent(new ProductChangedEvent(product, null));
     }
     
     @Transactional
     public Product adjustStock(Long id, Integer adjustment, String notes) {
-        Product product = getProductById(id);
-        Integer previousStock = product.getQuantity();
-        Integer newStock = previousStock + adjustment;
-        
-        if (newStock < 0) {
-            throw new IllegalArgumentException("Stock adjustment would result in negative quantity");
+        // Apply the change in place so concurrent adjustments and checkouts cannot overwrite each other
+        if (!productRepository.adjustQuantities(new TreeMap<>(Map.of(id, adjustment))).isEmpty()) {
+            Product product = findProduct(id);
+            throw new InsufficientStockException(
+                "Stock adjustment would result in negative quantity for product: " + product.getName() + 
+                ". Available: " + product.getQuantity() + ", Adjustment: " + adjustment);
         }
         
-        product.setQuantity(newStock);
-        Product updatedProduct = productRepository.save(product);
+        Product updatedProduct = findProduct(id);
+        Integer newStock = updatedProduct.getQuantity();
+        Integer previousStock = newStock - adjustment;
+        eventPublisher.publishEvent(
+                new ProductChangedEvent(updatedProduct.copyWithQuantity(previousStock), updatedProduct));
         
         String movementType = adjustment > 0 ? "RESTOCK" : "ADJUSTMENT";
         logStockMovement(updatedProduct, movementType, Math.abs(adjustment), previousStock, newStock, notes);
@@ -134,16 +257,128 @@ public class ProductService {
         return updatedProduct;
     }
     
-    public List<StockMovement> getStockMovementHistory(Long productId) {
-        return stockMovementRepository.findByProductIdOrderByCreatedAtDesc(productId);
+    /**
+     * Applies a batch of stock adjustments, e.g. a goods-received note, in one transaction.
+     * All products are locked with one query, in the same id order checkout uses, and each
+     * line is applied in turn; the updates and their RESTOCK / ADJUSTMENT movements are then
+     * written in JDBC batches. If any product is missing or a line would take its stock
+     * below zero, nothing is applied.
+     */
+    @Transactional
+    public List<Product> adjustStock(List<StockAdjustmentRequest.Line> lines) {
+        Set<String> barcodes = new HashSet<>();
+        for (StockAdjustmentRequest.Line line : lines) {
+            if ((line.getProductId() == null) == (line.getBarcode() == null)) {
+                throw new InvalidRequestException("Each adjustment needs either a productId or a barcode");
+            }
+            if (line.getAdjustment() == 0) {
+                throw new InvalidRequestException("Adjustment cannot be zero");
+            }
+            if (line.getBarcode() != null) {
+                barcodes.add(line.getBarcode());
+            }
+        }
+        
+        // Resolve barcodes through the cache, then lock every product in one query
+        Map<String, Product> byBarcode = barcodes.isEmpty()
+                ? Map.of()
+                : productCache.getAll(barcodes, productRepository::findAllByBarcodeIn);
+        List<Long> productIds = new ArrayList<>(lines.size());
+        for (StockAdjustmentRequest.Line line : lines) {
+            if (line.getProductId() != null) {
+                productIds.add(line.getProductId());
+            } else if (byBarcode.containsKey(line.getBarcode())) {
+                productIds.add(byBarcode.get(line.getBarcode()).getId());
+            } else {
+                throw new ResourceNotFoundException("Product not found with barcode: " + line.getBarcode());
+            }
+        }
+        Map<Long, Product> products = productRepository.findAllByIdForUpdate(new HashSet<>(productIds)).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+        Map<Long, Product> previous = new HashMap<>();
+        LocalDateTime now = productRepository.currentTimestamp();
+        
+        List<StockMovement> movements = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            StockAdjustmentRequest.Line line = lines.get(i);
+            Product product = products.get(productIds.get(i));
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with id: " + productIds.get(i));
+            }
+            previous.computeIfAbsent(product.getId(), id -> product.copy());
+            
+            int previousStock = product.getQuantity();
+            int newStock = previousStock + line.getAdjustment();
+            if (newStock < 0) {
+                throw new InsufficientStockException(
+                    "Stock adjustment would result in negative quantity for product: " + product.getName() + 
+                    ". Available: " + previousStock + ", Adjustment: " + line.getAdjustment());
+            }
+            product.setQuantity(newStock);
+            product.setUpdatedAt(now);
+            movements.add(newStockMovement(product, line.getAdjustment() > 0 ? "RESTOCK" : "ADJUSTMENT",
+                    Math.abs(line.getAdjustment()), previousStock, newStock,
+                    line.getNotes() != null ? line.getNotes() : "Bulk stock adjustment"));
+        }
+        stockMovementJournal.record(movements);
+        
+        for (Product product : products.values()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(previous.get(product.getId()), product));
+        }
+        return new ArrayList<>(products.values());
+    }
+    
+    /**
+     * One page of a product's stock movements, newest first, optionally limited to
+     * {@code from <= createdAt < to}. Movements older than the retention period are only
+     * kept as daily totals.
+     */
+    @Transactional(readOnly = true)
+    public StockMovementPage getStockMovementHistory(Long productId, LocalDateTime from, LocalDateTime to,
+                                                     String cursor, Integer size) {
+        int pageSize = Math.min(Math.max(size != null ? size : defaultPageSize, 1), maxPageSize);
+        // Fetch one extra movement to find out whether another page follows
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        LocalDateTime start = from != null ? from : HISTORY_START;
+        
+        List<StockMovement> movements;
+        if (cursor == null || cursor.isBlank()) {
+            movements = stockMovementRepository.findHistory(productId, start, to != null ? to : HISTORY_END, limit);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            movements = stockMovementRepository.findHistoryBefore(productId, start,
+                    position.getCreatedAt(), position.getId(), limit);
+        }
+        if (movements.size() <= pageSize) {
+            return new StockMovementPage(movements, null);
+        }
+        movements = movements.subList(0, pageSize);
+        StockMovement last = movements.get(pageSize - 1);
+        return new StockMovementPage(movements, new PageCursor(last.getCreatedAt(), last.getId()).encode());
     }
     
+    @Transactional(readOnly = true)
     public List<StockMovement> getRecentStockMovements() {
         return stockMovementRepository.findTop50ByOrderByCreatedAtDesc();
     }
     
+    public CacheStats getCacheStats() {
+        return productCache.getStats();
+    }
+    
+    private Product findProduct(Long id) {
+        return productRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+    }
+    
     private void logStockMovement(Product product, String movementType, Integer quantity, 
                                    Integer previousStock, Integer newStock, String notes) {
+        stockMovementJournal.record(List.of(
+                newStockMovement(product, movementType, quantity, previousStock, newStock, notes)));
+    }
+    
+    private static StockMovement newStockMovement(Product product, String movementType, Integer quantity, 
+                                                  Integer previousStock, Integer newStock, String notes) {
         StockMovement movement = new StockMovement();
         movement.setProductId(product.getId());
         movement.setProductName(product.getName());
@@ -153,7 +388,6 @@ public class ProductService {
         movement.setPreviousStock(previousStock);
         movement.setNewStock(newStock);
         movement.setNotes(notes);
-        
-        stockMovementRepository.save(movement);
+        return movement;
     }
 }
@@ -0,0 +1,116 @@
+package com.supermarket.service;
+
+import com.supermarket.model.StockMovementDaily;
+import com.supermarket.repository.StockMovementDailyRepository;
+import com.supermarket.repository.StockMovementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code stock_movements} to the last {@code stock.movements.retention-days} days.
+ * Older movements are rolled up into one {@code stock_movement_daily} row per product,
+ * day and movement type, then deleted, one day per transaction. A movement that arrives
+ * for a day that was already compacted is added to that day's rows on the next run.
+ */
+@Slf4j
+@Service
+public class StockMovementArchiveService {
+
+    private static final LocalDate EARLIEST = LocalDate.of(1970, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+    private static final int COMPACTION_TIMEOUT_SECONDS = 600;
+
+    private final StockMovementRepository stockMovementRepository;
+    private final StockMovementDailyRepository stockMovementDailyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+
+    public StockMovementArchiveService(StockMovementRepository stockMovementRepository,
+                                       StockMovementDailyRepository stockMovementDailyRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${stock.movements.retention-days:90}") int retentionDays) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.stockMovementDailyRepository = stockMovementDailyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // A day of movements can take longer to delete than the default timeout allows
+        this.transactionTemplate.setTimeout(COMPACTION_TIMEOUT_SECONDS);
+        this.retentionDays = retentionDays;
+    }
+
+    @Scheduled(cron = "${stock.movements.compaction-cron:0 30 0 * * *}")
+    public void compactExpired() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        stockMovementRepository.findEarliestCreatedAt()
+                .map(LocalDateTime::toLocalDate)
+                .filter(from -> from.isBefore(cutoff))
+                .ifPresent(from -> compact(from, cutoff.minusDays(1)));
+    }
+
+    public int compact(LocalDate startDate, LocalDate endDate) {
+        int days = 0;
+        long movements = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            try {
+                movements += compactDay(date);
+                days++;
+            } catch (DataAccessException ex) {
+                // Stop here so that later days are not compacted ahead of this one
+                log.warn("Could not compact stock movements of {}; retrying on the next run", date, ex);
+                break;
+            }
+        }
+        log.info("Compacted {} stock movement(s) of {} day(s) from {} to {}", movements, days, startDate, endDate);
+        return days;
+    }
+
+    public List<StockMovementDaily> getDailyTotals(Long productId, LocalDate from, LocalDate to) {
+        return stockMovementDailyRepository.findByProductIdAndMovementDateBetweenOrderByMovementDateDescMovementTypeAsc(
+                productId, from != null ? from : EARLIEST, to != null ? to : LATEST);
+    }
+
+    private int compactDay(LocalDate date) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            LocalDateTime start = date.atStartOfDay();
+            LocalDateTime end = date.plusDays(1).atStartOfDay();
+            List<StockMovementDaily> totals = stockMovementRepository.summarizeBetween(start, end);
+            if (totals.isEmpty()) {
+                return 0;
+            }
+            Map<String, StockMovementDaily> existing = stockMovementDailyRepository.findByMovementDate(date).stream()
+                    .collect(Collectors.toMap(StockMovementArchiveService::key, Function.identity()));
+            for (StockMovementDaily total : totals) {
+                StockMovementDaily row = existing.get(key(total));
+                if (row == null) {
+                    total.setMovementDate(date);
+                    existing.put(key(total), total);
+                } else {
+                    row.setQuantity(row.getQuantity() + total.getQuantity());
+                    row.setMovementCount(row.getMovementCount() + total.getMovementCount());
+                    row.setProductName(total.getProductName());
+                    row.setBarcode(total.getBarcode());
+                }
+            }
+            stockMovementDailyRepository.saveAll(existing.values());
+            return stockMovementRepository.deleteCreatedBetween(start, end);
+        });
+        return deleted != null ? deleted : 0;
+    }
+
+    private static String key(StockMovementDaily row) {
+        return row.getProductId() + "|" + row.getMovementType();
+    }
+}
@@ -0,0 +1,294 @@
+package com.supermarket.service;
+
+import com.supermarket.model.StockMovement;
+import com.supermarket.repository.StockMovementRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes stock movements, either inside the caller's transaction (the default) or, with
+ * {@code stock.journal.async=true}, behind it.
+ * <p>
+ * In async mode the movements of a transaction are handed to a bounded queue once it
+ * commits, and a writer thread inserts them in JDBC batches of
+ * {@code stock.journal.batch-size}; movements of a transaction that rolls back are never
+ * written. Room in the queue is reserved just before commit. When the queue stays full for
+ * {@code stock.journal.max-wait-ms}, the movements are written inside the transaction as
+ * in sync mode instead, so a backlog slows callers down rather than losing movements or
+ * holding their connections while the writer needs one. The queue is drained on shutdown,
+ * and movements recorded after that are written inside their transaction. Movement
+ * history can lag commits by up to one flush in this mode. A batch that fails with a
+ * transient error is retried up to {@code stock.journal.max-attempts} times; one that
+ * fails otherwise, or keeps failing, is split in halves that are written on their own, down
+ * to single movements, so only the movements that cannot be written are logged and
+ * dropped and a bad movement cannot stall the journal. Halves of a batch that ran out of
+ * retries get one more try each; if that fails transiently too, the database is what is
+ * failing and the half is dropped whole.
+ * <p>
+ * Published as {@code stock.journal.queue.depth}, {@code stock.journal.flush} (time per
+ * batch), {@code stock.journal.inline} (movements written inline because the queue was
+ * full), {@code stock.journal.flush.failures} and {@code stock.journal.dropped}.
+ */
+@Slf4j
+@Component
+public class StockMovementJournal {
+
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+
+    private final StockMovementRepository stockMovementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean async;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxWaitMillis;
+    private final int maxAttempts;
+    private final BlockingQueue<StockMovement> queue;
+    // Queued movements plus those being written; reserved before commit, released once written
+    private final Semaphore room;
+    private final Timer flushTimer;
+    private final Counter inlineCounter;
+    private final Counter failureCounter;
+    private final Counter droppedCounter;
+    private volatile boolean running;
+    private Thread writer;
+
+    public StockMovementJournal(StockMovementRepository stockMovementRepository,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                @Value("${stock.journal.async:false}") boolean async,
+                                @Value("${stock.journal.capacity:10000}") int capacity,
+                                @Value("${stock.journal.batch-size:500}") int batchSize,
+                                @Value("${stock.journal.max-wait-ms:200}") long maxWaitMillis,
+                                @Value("${stock.journal.max-attempts:10}") int maxAttempts) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.async = async;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxAttempts = maxAttempts;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.room = new Semaphore(capacity);
+
+        Gauge.builder("stock.journal.queue.depth", room, permits -> capacity - permits.availablePermits())
+                .description("Stock movements committed but not yet written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stock.journal.flush")
+                .description("Time to write one batch of stock movements")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.inlineCounter = Counter.builder("stock.journal.inline")
+                .description("Stock movements written inside their transaction because the queue was full")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("stock.journal.flush.failures")
+                .description("Failed attempts to write a batch of stock movements")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("stock.journal.dropped")
+                .description("Stock movements given up on because they could not be written")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (async) {
+            running = true;
+            writer = new Thread(this::run, "stock-movement-journal");
+            writer.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer != null) {
+            running = false;
+            writer.join();
+        }
+    }
+
+    /**
+     * Records movements made by the current transaction.
+     */
+    public void record(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        if (!async || !running || !TransactionSynchronizationManager.isSynchronizationActive()
+                || movements.size() > capacity) {
+            stockMovementRepository.saveAll(movements);
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        movements.forEach(movement -> movement.setCreatedAt(now));
+        TransactionSynchronizationManager.registerSynchronization(new PendingMovements(movements));
+    }
+
+    /**
+     * Waits until every movement committed so far has been written. Returns false if that
+     * did not happen within the timeout.
+     */
+    public boolean awaitFlushed(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (room.availablePermits() < capacity) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private void run() {
+        List<StockMovement> batch = new ArrayList<>(batchSize);
+        // Also waits for room reserved before commit, whose movements are queued after it
+        while (running || room.availablePermits() < capacity) {
+            try {
+                StockMovement first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                room.release(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<StockMovement> batch) throws InterruptedException {
+        // While shutting down it gives up sooner
+        int attempts = running ? maxAttempts : Math.min(maxAttempts, SHUTDOWN_ATTEMPTS);
+        RuntimeException failure = attempt(batch, attempts);
+        if (failure != null) {
+            split(batch, failure, attempts);
+        }
+    }
+
+    // Writes the halves of a batch that could not be written, so only the movements that
+    // fail on their own are dropped
+    private void split(List<StockMovement> batch, RuntimeException failure, int attempts)
+            throws InterruptedException {
+        if (batch.size() == 1) {
+            drop(batch, failure);
+            return;
+        }
+        int middle = batch.size() / 2;
+        for (List<StockMovement> half : List.of(batch.subList(0, middle), batch.subList(middle, batch.size()))) {
+            RuntimeException halfFailure = attempt(half, isTransient(failure) ? 1 : attempts);
+            if (halfFailure == null) {
+                continue;
+            }
+            if (isTransient(failure) && isTransient(halfFailure)) {
+                drop(half, halfFailure);
+            } else {
+                split(half, halfFailure, attempts);
+            }
+        }
+    }
+
+    /** Returns null once the movements are written, or the last failure. */
+    private RuntimeException attempt(List<StockMovement> movements, int attempts) throws InterruptedException {
+        long backoff = 100;
+        for (int attempt = 1; ; attempt++) {
+            long started = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> stockMovementRepository.saveAll(movements));
+                flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return null;
+            } catch (RuntimeException ex) {
+                failureCounter.increment();
+                // Ids taken in the failed transaction would make the next write look like an update
+                movements.forEach(movement -> movement.setId(null));
+                if (!isTransient(ex) || attempt >= attempts) {
+                    return ex;
+                }
+                log.warn("Writing {} stock movements failed, retrying in {} ms", movements.size(), backoff, ex);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void drop(List<StockMovement> movements, RuntimeException failure) {
+        droppedCounter.increment(movements.size());
+        log.error("Dropping {} stock movement(s) that could not be written: {}",
+                movements.size(), movements, failure);
+    }
+
+    // Lock timeouts, deadlocks, lost connections and an exhausted pool can pass; a
+    // constraint violation or bad data fails the same way every time
+    private static boolean isTransient(RuntimeException ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof RecoverableDataAccessException
+                || ex instanceof CannotCreateTransactionException;
+    }
+
+    private final class PendingMovements implements TransactionSynchronization {
+
+        private final List<StockMovement> movements;
+        private boolean reserved;
+
+        private PendingMovements(List<StockMovement> movements) {
+            this.movements = movements;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            try {
+                reserved = room.tryAcquire(movements.size(), maxWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (reserved && !running) {
+                // The writer may already be gone
+                room.release(movements.size());
+                reserved = false;
+                stockMovementRepository.saveAll(movements);
+            } else if (!reserved) {
+                stockMovementRepository.saveAll(movements);
+                inlineCounter.increment(movements.size());
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            if (reserved) {
+                // Cannot fail: the room was reserved before commit
+                queue.addAll(movements);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (reserved && status != STATUS_COMMITTED) {
+                room.release(movements.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.supermarket.cache;
+
+import com.supermarket.event.ProductChangedEvent;
+import com.supermarket.model.Product;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCacheTest {
+
+    private static final long TTL_SECONDS = 60;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ProductCache cache = new ProductCache(100, TTL_SECONDS, clock::get);
+
+    @Test
+    void hotBarcodeExpiresWhileItKeepsSelling() {
+        // Another instance raised the price; this one only learns it from the database
+        AtomicInteger loads = new AtomicInteger();
+        Product inDatabase = product(1L, "M1", 1.50, 100);
+        cache.getOrLoad("M1", barcode -> {
+            loads.incrementAndGet();
+            return Optional.of(inDatabase.copy());
+        });
+        inDatabase.setPrice(2.00);
+
+        // A sale every 10 seconds, each published from the cached snapshot as BillingService does
+        for (int second = 10; second <= TTL_SECONDS; second += 10) {
+            clock.set(TimeUnit.SECONDS.toNanos(second));
+            Product cached = cache.getOrLoad("M1", barcode -> Optional.of(inDatabase.copy())).orElseThrow();
+            sell(cached, 1);
+        }
+
+        clock.set(TimeUnit.SECONDS.toNanos(TTL_SECONDS + 15));
+        Product afterTtl = cache.getOrLoad("M1", barcode -> {
+            loads.incrementAndGet();
+            return Optional.of(inDatabase.copy());
+        }).orElseThrow();
+        assertThat(afterTtl.getPrice()).isEqualTo(2.00);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void saleOnlyPatchesQuantityOfCachedEntry() {
+        cache.getOrLoad("M1", barcode -> Optional.of(product(1L, "M1", 1.50, 100)));
+        Product stale = product(1L, "M1", 1.50, 100);
+        stale.setName("Old name");
+
+        cache.onProductChanged(new ProductChangedEvent(stale, stale.copyWithQuantity(97)));
+
+        Product cached = cache.getOrLoad("M1", barcode -> Optional.empty()).orElseThrow();
+        assertThat(cached.getQuantity()).isEqualTo(97);
+        assertThat(cached.getName()).isEqualTo("Product M1");
+    }
+
+    @Test
+    void saleOfUncachedBarcodeIsNotCached() {
+        Product stale = product(1L, "M1", 1.50, 100);
+
+        cache.onProductChanged(new ProductChangedEvent(stale, stale.copyWithQuantity(97)));
+
+        Product loaded = cache.getOrLoad("M1", barcode -> Optional.of(product(1L, "M1", 2.00, 97))).orElseThrow();
+        assertThat(loaded.getPrice()).isEqualTo(2.00);
+        assertThat(cache.getStats().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void editReplacesEntryAndRestartsItsTtl() {
+        cache.getOrLoad("M1", barcode -> Optional.of(product(1L, "M1", 1.50, 100)));
+        clock.set(TimeUnit.SECONDS.toNanos(50));
+
+        Product edited = product(1L, "M1", 1.80, 100);
+        cache.onProductChanged(new ProductChangedEvent(product(1L, "M1", 1.50, 100), edited));
+
+        clock.set(TimeUnit.SECONDS.toNanos(100));
+        Product cached = cache.getOrLoad("M1", barcode -> Optional.empty()).orElseThrow();
+        assertThat(cached.getPrice()).isEqualTo(1.80);
+    }
+
+    @Test
+    void changeDuringLoadDiscardsOnlyThatBarcode() {
+        Product changed = product(1L, "M1", 1.80, 100);
+        Map<String, Product> loaded = cache.getAll(List.of("M1", "B1"), barcodes -> {
+            // Commits while the rows are being read
+            cache.onProductChanged(new ProductChangedEvent(product(1L, "M1", 1.50, 100), changed));
+            return List.of(product(1L, "M1", 1.50, 100), product(2L, "B1", 3.00, 10));
+        });
+        assertThat(loaded).containsKeys("M1", "B1");
+
+        AtomicInteger reloads = new AtomicInteger();
+        Map<String, Product> cached = cache.getAll(List.of("M1", "B1"), barcodes -> {
+            reloads.addAndGet(barcodes.size());
+            return List.of();
+        });
+        assertThat(reloads).hasValue(0);
+        assertThat(cached.get("M1").getPrice()).isEqualTo(1.80);
+        assertThat(cached.get("B1").getPrice()).isEqualTo(3.00);
+    }
+
+    @Test
+    void loadOfOtherBarcodeIsKeptWhenUnrelatedProductChanges() {
+        cache.getOrLoad("B1", barcode -> {
+            cache.onProductChanged(new ProductChangedEvent(null, product(1L, "M1", 1.50, 100)));
+            return Optional.of(product(2L, "B1", 3.00, 10));
+        });
+
+        AtomicInteger reloads = new AtomicInteger();
+        cache.getOrLoad("B1", barcode -> {
+            reloads.incrementAndGet();
+            return Optional.empty();
+        });
+        assertThat(reloads).hasValue(0);
+    }
+
+    private void sell(Product cached, int quantity) {
+        int remaining = cached.getQuantity() - quantity;
+        cache.onProductChanged(new ProductChangedEvent(cached.copy(), cached.copyWithQuantity(remaining)));
+    }
+
+    private static Product product(Long id, String barcode, double price, int quantity) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + barcode);
+        product.setCategory("Dairy");
+        product.setBarcode(barcode);
+        product.setPrice(price);
+        product.setQuantity(quantity);
+        product.setLowStockThreshold(5);
+        return product;
+    }
+}
@@ -0,0 +1,136 @@
+package com.supermarket.repository;
+
+import com.supermarket.model.Product;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionEventListener;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class ProductStockRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long plenty;
+    private Long scarce;
+
+    @BeforeEach
+    void setUp() {
+        plenty = productRepository.saveAndFlush(product("P1", 5)).getId();
+        scarce = productRepository.saveAndFlush(product("S1", 2)).getId();
+        entityManager.clear();
+    }
+
+    @Test
+    void deductionBelowZeroIsRefusedAndLeavesStockAlone() {
+        List<Long> refused = productRepository.adjustQuantities(new TreeMap<>(Map.of(plenty, -3, scarce, -5)));
+
+        assertThat(refused).containsExactly(scarce);
+        assertThat(quantities()).containsEntry(plenty, 2).containsEntry(scarce, 2);
+    }
+
+    @Test
+    void missingProductIsRefused() {
+        List<Long> refused = productRepository.adjustQuantities(new TreeMap<>(Map.of(plenty, -1, -42L, -1)));
+
+        assertThat(refused).containsExactly(-42L);
+        assertThat(quantities()).containsEntry(plenty, 4);
+    }
+
+    @Test
+    void refusalsAreFoundWhenTheDriverReportsNoCounts() {
+        List<Long> refused = withConnection(connection -> ProductStockRepositoryImpl.adjustQuantities(
+                withoutUpdateCounts(connection), new TreeMap<>(Map.of(plenty, -5, scarce, -3, -42L, -1)),
+                0, new SessionEventListener() { }));
+
+        assertThat(refused).containsExactly(-42L, scarce);
+        assertThat(quantities()).containsEntry(plenty, 0).containsEntry(scarce, 2);
+    }
+
+    @Test
+    void nothingIsRefusedWhenEveryUnreportedDeductionApplied() {
+        List<Long> refused = withConnection(connection -> ProductStockRepositoryImpl.adjustQuantities(
+                withoutUpdateCounts(connection), new TreeMap<>(Map.of(plenty, -1, scarce, 4)),
+                0, new SessionEventListener() { }));
+
+        assertThat(refused).isEmpty();
+        assertThat(quantities()).containsEntry(plenty, 4).containsEntry(scarce, 6);
+    }
+
+    private Map<Long, Integer> quantities() {
+        return productRepository.findStockQuantities(List.of(plenty, scarce)).stream()
+                .collect(Collectors.toMap(ProductRepository.StockQuantity::getId,
+                        ProductRepository.StockQuantity::getQuantity));
+    }
+
+    private List<Long> withConnection(org.hibernate.jdbc.ReturningWork<List<Long>> work) {
+        return entityManager.unwrap(SessionImplementor.class).doReturningWork(work);
+    }
+
+    // Answers executeBatch like MySQL's driver does with rewriteBatchedStatements=true
+    private static Connection withoutUpdateCounts(Connection connection) {
+        return delegate(Connection.class, connection, (method, args) -> {
+            Object result = invoke(method, connection, args);
+            if (result instanceof PreparedStatement statement) {
+                return delegate(PreparedStatement.class, statement, (statementMethod, statementArgs) -> {
+                    Object statementResult = invoke(statementMethod, statement, statementArgs);
+                    if (statementMethod.getName().equals("executeBatch")) {
+                        int[] counts = new int[((int[]) statementResult).length];
+                        Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                        return counts;
+                    }
+                    return statementResult;
+                });
+            }
+            return result;
+        });
+    }
+
+    private interface Call {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T delegate(Class<T> type, T target, Call call) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> call.invoke(method, args)));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Product product(String barcode, int quantity) {
+        Product product = new Product();
+        product.setName("Product " + barcode);
+        product.setCategory("Dairy");
+        product.setBarcode(barcode);
+        product.setPrice(1.50);
+        product.setQuantity(quantity);
+        product.setLowStockThreshold(1);
+        return product;
+    }
+}
@@ -0,0 +1,165 @@
+package com.supermarket.service;
+
+import com.supermarket.model.StockMovement;
+import com.supermarket.repository.StockMovementRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockMovementJournalTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StockMovementRepository repository = mock(StockMovementRepository.class);
+    private final TransactionTemplate transactions = new TransactionTemplate(new NoOpTransactionManager());
+    private final List<StockMovement> written = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger writes = new AtomicInteger();
+    private StockMovementJournal journal;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (journal != null) {
+            journal.stop();
+        }
+    }
+
+    @Test
+    void badMovementIsDroppedWithoutItsBatch() throws InterruptedException {
+        journal = start(500, 3);
+        failWhen(movements -> movements.stream().anyMatch(movement -> "BAD".equals(movement.getBarcode()))
+                ? new DataIntegrityViolationException("check constraint") : null);
+
+        List<StockMovement> movements = movements(200);
+        movements.get(137).setBarcode("BAD");
+        record(movements);
+
+        assertThat(journal.awaitFlushed(Duration.ofSeconds(10))).isTrue();
+        assertThat(written).hasSize(199).doesNotContain(movements.get(137));
+        assertThat(dropped()).isEqualTo(1);
+        // 200 rows bisect down to the bad one in about log2(200) rounds, not one write per row
+        assertThat(writes.get()).isLessThan(40);
+    }
+
+    @Test
+    void batchThatRunsOutOfRetriesGetsAnotherTryInHalves() throws InterruptedException {
+        journal = start(500, 2);
+        AtomicInteger failures = new AtomicInteger();
+        failWhen(movements -> movements.size() > 1 && failures.getAndIncrement() < 2
+                ? new TransientDataAccessResourceException("lock wait timeout") : null);
+
+        record(movements(50));
+
+        assertThat(journal.awaitFlushed(Duration.ofSeconds(10))).isTrue();
+        assertThat(written).hasSize(50);
+        assertThat(dropped()).isZero();
+    }
+
+    @Test
+    void halfThatStillFailsTransientlyIsDroppedWhole() throws InterruptedException {
+        journal = start(500, 2);
+        failWhen(movements -> new TransientDataAccessResourceException("connection reset"));
+
+        record(movements(30));
+
+        assertThat(journal.awaitFlushed(Duration.ofSeconds(10))).isTrue();
+        assertThat(written).isEmpty();
+        assertThat(dropped()).isEqualTo(30);
+        // Two attempts per batch and one per half, not one per movement
+        assertThat(writes.get()).isLessThan(30);
+    }
+
+    @Test
+    void movementsRecordedAfterStopAreWrittenInTheirTransaction() throws InterruptedException {
+        journal = start(500, 3);
+        failWhen(movements -> null);
+        journal.stop();
+
+        List<StockMovement> movements = movements(5);
+        transactions.executeWithoutResult(status -> {
+            journal.record(movements);
+            assertThat(written).containsExactlyElementsOf(movements);
+        });
+        assertThat(journal.awaitFlushed(Duration.ZERO)).isTrue();
+    }
+
+    private StockMovementJournal start(int batchSize, int maxAttempts) {
+        StockMovementJournal started = new StockMovementJournal(repository, new NoOpTransactionManager(),
+                meterRegistry, true, 10_000, batchSize, 200, maxAttempts);
+        started.start();
+        return started;
+    }
+
+    private interface Failure {
+        RuntimeException of(List<StockMovement> movements);
+    }
+
+    private void failWhen(Failure failure) {
+        when(repository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<StockMovement> movements = new ArrayList<>();
+            invocation.<Iterable<StockMovement>>getArgument(0).forEach(movements::add);
+            writes.incrementAndGet();
+            RuntimeException ex = failure.of(movements);
+            if (ex != null) {
+                throw ex;
+            }
+            written.addAll(movements);
+            return movements;
+        });
+    }
+
+    private void record(List<StockMovement> movements) {
+        transactions.executeWithoutResult(status -> journal.record(movements));
+    }
+
+    private double dropped() {
+        return meterRegistry.get("stock.journal.dropped").counter().count();
+    }
+
+    private static List<StockMovement> movements(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            StockMovement movement = new StockMovement();
+            movement.setProductId((long) i);
+            movement.setProductName("Product " + i);
+            movement.setBarcode("B" + i);
+            movement.setMovementType("SALE");
+            movement.setQuantity(1);
+            return movement;
+        }).toList();
+    }
+
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}